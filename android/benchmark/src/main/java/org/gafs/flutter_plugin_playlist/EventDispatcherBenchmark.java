@@ -0,0 +1,67 @@
+package org.gafs.flutter_plugin_playlist;
+
+import com.devbrackets.android.playlistcore.data.MediaProgress;
+import com.devbrackets.android.playlistcore.listener.ProgressListener;
+
+import org.gafs.flutter_plugin_playlist.event.EventDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A progress tick going out to a few listeners. Run with -prof gc to check that
+ * dispatching allocates nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventDispatcherBenchmark {
+    private static final EventDispatcher.Event<ProgressListener, MediaProgress> PROGRESS_UPDATED = new EventDispatcher.Event<ProgressListener, MediaProgress>() {
+        @Override
+        public boolean dispatch(ProgressListener listener, MediaProgress progress) {
+            return listener.onProgressUpdated(progress);
+        }
+    };
+
+    private static class Listener implements ProgressListener {
+        Blackhole blackhole;
+
+        @Override
+        public boolean onProgressUpdated(MediaProgress progress) {
+            blackhole.consume(progress);
+            return false;
+        }
+    }
+
+    // Held here, the dispatcher only keeps weak references.
+    private final Listener[] listeners = new Listener[4];
+    private final EventDispatcher<ProgressListener> dispatcher = new EventDispatcher<>();
+    private final MediaProgress progress = new MediaProgress(63300, 42, 215000);
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        for (int index = 0; index < listeners.length; index++) {
+            listeners[index] = new Listener();
+            listeners[index].blackhole = blackhole;
+            dispatcher.add(listeners[index]);
+        }
+    }
+
+    @Benchmark
+    public boolean dispatchProgress() {
+        return dispatcher.dispatch(PROGRESS_UPDATED, progress);
+    }
+}
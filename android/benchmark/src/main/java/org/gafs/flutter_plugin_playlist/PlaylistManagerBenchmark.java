@@ -0,0 +1,112 @@
+package org.gafs.flutter_plugin_playlist;
+
+import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+import org.gafs.flutter_plugin_playlist.manager.PlaylistManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Queue operations on a PlaylistManager holding `size` tracks, with the
+ * current item in the middle. Every mutation is undone in the same
+ * invocation, so the queue is the same size throughout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlaylistManagerBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    private PlaylistManager playlistManager;
+    private List<AudioTrack> tracks;
+    private AudioTrack extraTrack;
+    private AudioTrack lastTrack;
+    private ArrayList<TrackRemovalItem> lastHundred;
+    private List<AudioTrack> lastHundredTracks;
+    private PlaylistItemOptions options;
+
+    @Setup
+    public void setUp() throws IOException {
+        playlistManager = Tracks.newPlaylistManager();
+        tracks = Tracks.create("track", size);
+        extraTrack = Tracks.create("extra", 1).get(0);
+        lastTrack = tracks.get(size - 1);
+
+        lastHundredTracks = tracks.subList(size - 100, size);
+        lastHundred = new ArrayList<>();
+        for (AudioTrack track : lastHundredTracks) {
+            lastHundred.add(new TrackRemovalItem(-1, track.getTrackId()));
+        }
+
+        options = new PlaylistItemOptions(false, 0, true);
+        playlistManager.setAllItems(tracks, options);
+        playlistManager.setCurrentPosition(size / 2);
+    }
+
+    // Both versions copy only the last chunk of the queue and the chunk index, see TrackList.
+    @Benchmark
+    public AudioTrack addItem() {
+        playlistManager.addItem(extraTrack);
+        return playlistManager.removeItem(size, null);
+    }
+
+    // Shifts the current position both ways; the queue only copies the first chunk and the chunk index.
+    @Benchmark
+    public AudioTrack insertItem() {
+        playlistManager.insertItem(extraTrack, 0);
+        return playlistManager.removeItem(0, null);
+    }
+
+    // Every lookup by id follows an edit, as with REMOVE_PLAYLIST_ITEM calls one after another.
+    @Benchmark
+    public AudioTrack removeItemById() {
+        AudioTrack removed = playlistManager.removeItem(-1, lastTrack.getTrackId());
+        playlistManager.addItem(removed);
+        return removed;
+    }
+
+    // An insert followed by a lookup by id, as when PLAY_BY_ID follows each insert.
+    @Benchmark
+    public int insertItemThenResolve() {
+        playlistManager.insertItem(extraTrack, 0);
+        int position = playlistManager.getPositionForTrackId(lastTrack.getTrackId());
+        playlistManager.removeItem(0, null);
+        return position;
+    }
+
+    @Benchmark
+    public ArrayList<AudioTrack> removeItems() {
+        ArrayList<AudioTrack> removed = playlistManager.removeAllItems(lastHundred);
+        playlistManager.addAllItems(lastHundredTracks);
+        return removed;
+    }
+
+    // The id lookup behind resolveItemPosition, with the index up to date.
+    @Benchmark
+    public int resolveItemPosition() {
+        return playlistManager.getPositionForTrackId(lastTrack.getTrackId());
+    }
+
+    @Benchmark
+    public int setAllItems() {
+        playlistManager.setAllItems(tracks, options);
+        return playlistManager.getItemCount();
+    }
+}
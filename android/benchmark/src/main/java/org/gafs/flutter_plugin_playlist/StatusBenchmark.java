@@ -0,0 +1,117 @@
+package org.gafs.flutter_plugin_playlist;
+
+import com.devbrackets.android.playlistcore.data.MediaProgress;
+import com.devbrackets.android.playlistcore.data.PlaybackState;
+
+import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+import org.gafs.flutter_plugin_playlist.manager.PlaylistManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * What every progress tick costs: building the player status and turning it
+ * into the payload that goes over the platform channel, as a map or as a
+ * binary record. The steady-state tick has an allocation budget, see
+ * allocationBudgets in build.gradle, checked when run with -prof gc.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatusBenchmark {
+    private AudioTrack track;
+    private Map<String, Object> trackMap;
+    private RmxAudioPlayer mapPlayer;
+    private RmxAudioPlayer binaryPlayer;
+    private PlayerStatus status;
+    private StatusEncoder statusEncoder;
+
+    // Hands whatever the player reports to the Blackhole, so it isn't optimized away.
+    private static class Listener implements OnStatusReportListener {
+        Blackhole blackhole;
+
+        @Override
+        public void onError(RmxAudioErrorType errorCode, String trackId, String message) {
+            blackhole.consume(message);
+        }
+
+        @Override
+        public void onStatus(RmxAudioStatusMessage what, String trackId, Object param) {
+            blackhole.consume(param);
+        }
+
+        @Override
+        public void onStatusRecord(ByteBuffer record) {
+            blackhole.consume(record);
+        }
+    }
+
+    private final Listener mapListener = new Listener();
+    private final Listener binaryListener = new Listener();
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws IOException {
+        PlaylistManager playlistManager = Tracks.newPlaylistManager();
+        playlistManager.setAllItems(Tracks.create("track", 1000), new PlaylistItemOptions(false, 0, true));
+        playlistManager.setCurrentPosition(500);
+        track = playlistManager.getCurrentItem();
+        trackMap = Tracks.toMap("track", 500);
+
+        mapListener.blackhole = blackhole;
+        binaryListener.blackhole = blackhole;
+        mapPlayer = new RmxAudioPlayer(mapListener);
+        binaryPlayer = new RmxAudioPlayer(binaryListener);
+        binaryPlayer.setBinaryStatus(true);
+
+        status = new PlayerStatus();
+        status.update(track, PlaybackState.PLAYING, 500, new MediaProgress(63300, 42, 215000));
+        statusEncoder = new StatusEncoder();
+    }
+
+    @Benchmark
+    public Map<?, ?> getPlayerStatus() {
+        return mapPlayer.getPlayerStatus(track);
+    }
+
+    @Benchmark
+    public Map<?, ?> toDict() {
+        return track.toDict();
+    }
+
+    // A track as it arrives from Dart, through to its first toDict.
+    @Benchmark
+    public Map<?, ?> newTrackToDict() {
+        return new AudioTrack(trackMap).toDict();
+    }
+
+    @Benchmark
+    public ByteBuffer encodeStatus() {
+        return statusEncoder.encode(RmxAudioStatusMessage.RMXSTATUS_PLAYBACK_POSITION.getValue(), status);
+    }
+
+    @Benchmark
+    public void reportStatusMap() {
+        mapPlayer.reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYBACK_POSITION, track, null);
+    }
+
+    @Benchmark
+    public void reportStatusBinary() {
+        binaryPlayer.reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYBACK_POSITION, track, null);
+    }
+}
@@ -0,0 +1,47 @@
+package org.gafs.flutter_plugin_playlist;
+
+import android.app.Application;
+
+import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+import org.gafs.flutter_plugin_playlist.manager.PlaylistManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Test data shared by the benchmarks. Albums repeat every 12 tracks and artists
+ * every 40, roughly what a real library looks like.
+ */
+final class Tracks {
+    private Tracks() {
+    }
+
+    static PlaylistManager newPlaylistManager() throws IOException {
+        PlaylistManager.init(new Application(Files.createTempDirectory("playlist-benchmark").toFile()));
+        return PlaylistManager.getInstance();
+    }
+
+    static List<AudioTrack> create(String prefix, int count) {
+        ArrayList<AudioTrack> tracks = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            tracks.add(new AudioTrack(toMap(prefix, index)));
+        }
+        return tracks;
+    }
+
+    static Map<String, Object> toMap(String prefix, int index) {
+        Map<String, Object> track = new HashMap<>();
+        track.put("trackId", prefix + "-" + index);
+        track.put("assetUrl", "https://media.example.com/" + prefix + "/" + index + ".mp3");
+        track.put("albumArt", "https://media.example.com/art/" + (index / 12) + ".jpg");
+        track.put("title", "Track " + index);
+        track.put("album", "Album " + (index / 12));
+        track.put("artist", "Artist " + (index / 40));
+        track.put("isStream", false);
+        return track;
+    }
+}
@@ -0,0 +1,34 @@
+package android.app;
+
+import android.os.Bundle;
+
+import java.io.File;
+
+public class Application {
+    public interface ActivityLifecycleCallbacks {
+        void onActivityCreated(Activity activity, Bundle savedInstanceState);
+        void onActivityStarted(Activity activity);
+        void onActivityResumed(Activity activity);
+        void onActivityPaused(Activity activity);
+        void onActivityStopped(Activity activity);
+        void onActivitySaveInstanceState(Activity activity, Bundle outState);
+        void onActivityDestroyed(Activity activity);
+    }
+
+    private final File filesDir;
+
+    public Application(File filesDir) {
+        this.filesDir = filesDir;
+    }
+
+    public File getFilesDir() {
+        return filesDir;
+    }
+
+    public Application getApplicationContext() {
+        return this;
+    }
+
+    public void registerActivityLifecycleCallbacks(ActivityLifecycleCallbacks callback) {
+    }
+}
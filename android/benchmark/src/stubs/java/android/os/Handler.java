@@ -0,0 +1,21 @@
+package android.os;
+
+// Nothing is ever run: the benchmarks measure the calling thread only.
+public class Handler {
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public boolean post(Runnable runnable) {
+        return true;
+    }
+
+    public boolean postDelayed(Runnable runnable, long delayMillis) {
+        return true;
+    }
+
+    public void removeCallbacks(Runnable runnable) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.devbrackets.android.exomedia;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+public class ExoMedia {
+    public interface DataSourceFactoryProvider {
+        DataSource.Factory provide(String userAgent, TransferListener listener);
+    }
+
+    public static void setDataSourceFactoryProvider(DataSourceFactoryProvider provider) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.devbrackets.android.exomedia.core.api;
+
+public interface VideoViewApi {
+}
@@ -0,0 +1,5 @@
+package com.devbrackets.android.exomedia.listener;
+
+public interface OnErrorListener {
+    boolean onError(Exception e);
+}
@@ -0,0 +1,4 @@
+package com.devbrackets.android.playlistcore.annotation;
+
+public @interface SupportedMediaType {
+}
@@ -0,0 +1,6 @@
+package com.devbrackets.android.playlistcore.api;
+
+public interface MediaPlayerApi<I extends PlaylistItem> {
+    boolean isPlaying();
+    void setVolume(float left, float right);
+}
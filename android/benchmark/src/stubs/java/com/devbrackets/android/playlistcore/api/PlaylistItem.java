@@ -0,0 +1,14 @@
+package com.devbrackets.android.playlistcore.api;
+
+public interface PlaylistItem {
+    long getId();
+    boolean getDownloaded();
+    String getDownloadedMediaUri();
+    int getMediaType();
+    String getMediaUrl();
+    String getThumbnailUrl();
+    String getArtworkUrl();
+    String getTitle();
+    String getAlbum();
+    String getArtist();
+}
@@ -0,0 +1,12 @@
+package com.devbrackets.android.playlistcore.components.playlisthandler;
+
+import com.devbrackets.android.playlistcore.api.MediaPlayerApi;
+import com.devbrackets.android.playlistcore.api.PlaylistItem;
+
+public abstract class PlaylistHandler<I extends PlaylistItem> {
+    public abstract MediaPlayerApi<I> getCurrentMediaPlayer();
+    public abstract void play();
+    public abstract void pause(boolean transient_);
+    public abstract void stop();
+    public abstract void seek(long positionMillis);
+}
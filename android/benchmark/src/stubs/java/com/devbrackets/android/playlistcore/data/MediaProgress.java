@@ -0,0 +1,29 @@
+package com.devbrackets.android.playlistcore.data;
+
+public class MediaProgress {
+    private final long position;
+    private final int bufferPercent;
+    private final long duration;
+
+    public MediaProgress(long position, int bufferPercent, long duration) {
+        this.position = position;
+        this.bufferPercent = bufferPercent;
+        this.duration = duration;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public int getBufferPercent() {
+        return bufferPercent;
+    }
+
+    public float getBufferPercentFloat() {
+        return bufferPercent == 100 ? 1f : bufferPercent / 100f;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,5 @@
+package com.devbrackets.android.playlistcore.data;
+
+public enum PlaybackState {
+    RETRIEVING, PREPARING, PLAYING, PAUSED, SEEKING, STOPPED, ERROR
+}
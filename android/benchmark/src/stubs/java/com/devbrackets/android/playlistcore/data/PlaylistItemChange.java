@@ -0,0 +1,17 @@
+package com.devbrackets.android.playlistcore.data;
+
+import com.devbrackets.android.playlistcore.api.PlaylistItem;
+
+public class PlaylistItemChange<I extends PlaylistItem> {
+    public I getCurrentItem() {
+        return null;
+    }
+
+    public boolean getHasNext() {
+        return false;
+    }
+
+    public boolean getHasPrevious() {
+        return false;
+    }
+}
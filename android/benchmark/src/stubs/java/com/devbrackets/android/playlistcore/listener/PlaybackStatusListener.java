@@ -0,0 +1,9 @@
+package com.devbrackets.android.playlistcore.listener;
+
+import com.devbrackets.android.playlistcore.api.PlaylistItem;
+
+public interface PlaybackStatusListener<I extends PlaylistItem> {
+    void onMediaPlaybackStarted(I item, long currentPosition, long duration);
+    void onItemPlaybackEnded(I item);
+    void onPlaylistEnded();
+}
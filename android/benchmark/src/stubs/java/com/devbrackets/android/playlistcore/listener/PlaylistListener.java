@@ -0,0 +1,9 @@
+package com.devbrackets.android.playlistcore.listener;
+
+import com.devbrackets.android.playlistcore.api.PlaylistItem;
+import com.devbrackets.android.playlistcore.data.PlaybackState;
+
+public interface PlaylistListener<I extends PlaylistItem> {
+    boolean onPlaylistItemChanged(I currentItem, boolean hasNext, boolean hasPrevious);
+    boolean onPlaybackStateChanged(PlaybackState playbackState);
+}
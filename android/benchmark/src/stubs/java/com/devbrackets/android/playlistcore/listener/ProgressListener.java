@@ -0,0 +1,7 @@
+package com.devbrackets.android.playlistcore.listener;
+
+import com.devbrackets.android.playlistcore.data.MediaProgress;
+
+public interface ProgressListener {
+    boolean onProgressUpdated(MediaProgress mediaProgress);
+}
@@ -0,0 +1,102 @@
+package com.devbrackets.android.playlistcore.manager;
+
+import android.app.Application;
+import android.app.Service;
+
+import com.devbrackets.android.playlistcore.api.MediaPlayerApi;
+import com.devbrackets.android.playlistcore.api.PlaylistItem;
+import com.devbrackets.android.playlistcore.components.playlisthandler.PlaylistHandler;
+import com.devbrackets.android.playlistcore.data.MediaProgress;
+import com.devbrackets.android.playlistcore.data.PlaybackState;
+import com.devbrackets.android.playlistcore.data.PlaylistItemChange;
+import com.devbrackets.android.playlistcore.listener.PlaybackStatusListener;
+import com.devbrackets.android.playlistcore.listener.PlaylistListener;
+import com.devbrackets.android.playlistcore.listener.ProgressListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Stand-in for playlistcore's BasePlaylistManager. There is no service, so there is
+ * never a playlist handler and play() only records the request; the bookkeeping the
+ * plugin does around it is what gets measured.
+ */
+public abstract class BasePlaylistManager<I extends PlaylistItem> {
+    public static final int INVALID_POSITION = -1;
+    public static final int AUDIO = 1;
+
+    private final List<MediaPlayerApi<I>> mediaPlayers = new ArrayList<>();
+    private long id;
+
+    public BasePlaylistManager(Application application, Class<? extends Service> mediaServiceClass) {
+    }
+
+    public abstract int getCurrentPosition();
+    public abstract void setCurrentPosition(int position);
+    public abstract int getItemCount();
+    public abstract I getItem(int position);
+    public abstract I getCurrentItem();
+    public abstract boolean isNextAvailable();
+    public abstract I next();
+    public abstract I previous();
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public List<MediaPlayerApi<I>> getMediaPlayers() {
+        return mediaPlayers;
+    }
+
+    public PlaylistHandler<I> getPlaylistHandler() {
+        return null;
+    }
+
+    public MediaProgress getCurrentProgress() {
+        return null;
+    }
+
+    public PlaybackState getCurrentPlaybackState() {
+        return PlaybackState.STOPPED;
+    }
+
+    public PlaylistItemChange<I> getCurrentItemChange() {
+        return null;
+    }
+
+    public void play(long seekPosition, boolean startPaused) {
+    }
+
+    public void invokeStop() {
+    }
+
+    public void invokeNext() {
+        next();
+    }
+
+    public void invokePrevious() {
+        previous();
+    }
+
+    public void invokePausePlay() {
+    }
+
+    public void setPlaybackStatusListener(PlaybackStatusListener<I> listener) {
+    }
+
+    public void registerPlaylistListener(PlaylistListener<I> listener) {
+    }
+
+    public void unRegisterPlaylistListener(PlaylistListener<I> listener) {
+    }
+
+    public void registerProgressListener(ProgressListener listener) {
+    }
+
+    public void unRegisterProgressListener(ProgressListener listener) {
+    }
+}
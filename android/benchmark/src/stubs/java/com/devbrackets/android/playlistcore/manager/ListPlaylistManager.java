@@ -0,0 +1,72 @@
+package com.devbrackets.android.playlistcore.manager;
+
+import android.app.Application;
+import android.app.Service;
+
+import com.devbrackets.android.playlistcore.api.PlaylistItem;
+
+import java.util.List;
+
+// Stand-in for playlistcore's ListPlaylistManager, which reads through the list it is given.
+public abstract class ListPlaylistManager<I extends PlaylistItem> extends BasePlaylistManager<I> {
+    private List<I> items;
+    private int currentPosition = INVALID_POSITION;
+
+    public ListPlaylistManager(Application application, Class<? extends Service> mediaServiceClass) {
+        super(application, mediaServiceClass);
+    }
+
+    public void setParameters(List<I> items, int startPosition) {
+        setItems(items);
+        setCurrentPosition(startPosition);
+    }
+
+    public void setItems(List<I> items) {
+        this.items = items;
+    }
+
+    @Override
+    public int getItemCount() {
+        return items != null ? items.size() : 0;
+    }
+
+    @Override
+    public I getItem(int position) {
+        if (items == null || position < 0 || position >= items.size()) {
+            return null;
+        }
+        return items.get(position);
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return currentPosition;
+    }
+
+    @Override
+    public void setCurrentPosition(int position) {
+        currentPosition = position;
+    }
+
+    @Override
+    public I getCurrentItem() {
+        return getItem(currentPosition);
+    }
+
+    @Override
+    public boolean isNextAvailable() {
+        return currentPosition + 1 < getItemCount();
+    }
+
+    @Override
+    public I next() {
+        currentPosition = Math.min(currentPosition + 1, getItemCount());
+        return getCurrentItem();
+    }
+
+    @Override
+    public I previous() {
+        currentPosition = Math.max(0, currentPosition - 1);
+        return getCurrentItem();
+    }
+}
@@ -0,0 +1,26 @@
+package com.google.android.exoplayer2;
+
+public final class ExoPlaybackException extends Exception {
+    public static final int TYPE_SOURCE = 0;
+    public static final int TYPE_RENDERER = 1;
+    public static final int TYPE_UNEXPECTED = 2;
+
+    public final int type;
+
+    public ExoPlaybackException(int type, Throwable cause) {
+        super(cause);
+        this.type = type;
+    }
+
+    public Exception getSourceException() {
+        return (Exception) getCause();
+    }
+
+    public Exception getRendererException() {
+        return (Exception) getCause();
+    }
+
+    public RuntimeException getUnexpectedException() {
+        return (RuntimeException) getCause();
+    }
+}
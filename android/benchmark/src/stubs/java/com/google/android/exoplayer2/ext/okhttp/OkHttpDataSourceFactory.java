@@ -0,0 +1,14 @@
+package com.google.android.exoplayer2.ext.okhttp;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+public final class OkHttpDataSourceFactory implements DataSource.Factory {
+    public OkHttpDataSourceFactory(Object callFactory, String userAgent, TransferListener<? super DataSource> listener) {
+    }
+
+    @Override
+    public DataSource createDataSource() {
+        return null;
+    }
+}
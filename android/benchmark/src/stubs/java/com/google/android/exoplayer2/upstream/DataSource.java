@@ -0,0 +1,7 @@
+package com.google.android.exoplayer2.upstream;
+
+public interface DataSource {
+    interface Factory {
+        DataSource createDataSource();
+    }
+}
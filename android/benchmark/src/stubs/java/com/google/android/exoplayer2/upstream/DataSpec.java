@@ -0,0 +1,11 @@
+package com.google.android.exoplayer2.upstream;
+
+import android.net.Uri;
+
+public final class DataSpec {
+    public final Uri uri;
+
+    public DataSpec(Uri uri) {
+        this.uri = uri;
+    }
+}
@@ -0,0 +1,7 @@
+package com.google.android.exoplayer2.upstream;
+
+public interface TransferListener<S> {
+    void onTransferStart(S source, DataSpec dataSpec);
+    void onBytesTransferred(S source, int bytesTransferred);
+    void onTransferEnd(S source);
+}
@@ -0,0 +1,5 @@
+package com.google.android.exoplayer2.upstream.cache;
+
+public final class CacheDataSource {
+    public static final int FLAG_IGNORE_CACHE_ON_ERROR = 1 << 1;
+}
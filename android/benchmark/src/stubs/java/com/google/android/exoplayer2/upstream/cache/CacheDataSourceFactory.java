@@ -0,0 +1,13 @@
+package com.google.android.exoplayer2.upstream.cache;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+
+public final class CacheDataSourceFactory implements DataSource.Factory {
+    public CacheDataSourceFactory(Object cache, DataSource.Factory upstreamFactory, int flags) {
+    }
+
+    @Override
+    public DataSource createDataSource() {
+        return null;
+    }
+}
@@ -0,0 +1,5 @@
+package org.gafs.flutter_plugin_playlist;
+
+public final class BuildConfig {
+    public static final boolean DEBUG = false;
+}
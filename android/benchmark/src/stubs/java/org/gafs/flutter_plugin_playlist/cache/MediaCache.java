@@ -0,0 +1,12 @@
+package org.gafs.flutter_plugin_playlist.cache;
+
+import android.app.Application;
+
+public final class MediaCache {
+    public static void init(Application application) {
+    }
+
+    public static Object getCache() {
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package org.gafs.flutter_plugin_playlist.cache;
+
+import java.util.List;
+
+// Nothing is downloaded, plan() only holds on to the urls like the real one.
+public class MediaPrefetcher {
+    private int depth = 0;
+    private List<String> planned;
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public void plan(List<String> urls) {
+        planned = urls;
+    }
+
+    public void setCurrentItemBuffered(boolean buffered) {
+    }
+
+    public void cancel() {
+        planned = null;
+    }
+}
@@ -0,0 +1,36 @@
+package org.gafs.flutter_plugin_playlist.download;
+
+import android.app.Application;
+
+public class MediaDownloadManager {
+    private static MediaDownloadManager instance;
+
+    public static void init(Application application) {
+        instance = new MediaDownloadManager();
+    }
+
+    public static MediaDownloadManager getInstance() {
+        return instance;
+    }
+
+    public boolean isDownloaded(String trackId) {
+        return false;
+    }
+
+    public String getDownloadedMediaUri(String trackId) {
+        return null;
+    }
+
+    // AudioTrack isn't on the stubs' classpath, Object takes its place.
+    public boolean isDownloaded(Object track) {
+        return false;
+    }
+
+    public String getDownloadedMediaUri(Object track) {
+        return null;
+    }
+
+    public static String fileName(String trackId) {
+        return trackId;
+    }
+}
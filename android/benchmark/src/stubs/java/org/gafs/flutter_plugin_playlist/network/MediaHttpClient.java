@@ -0,0 +1,7 @@
+package org.gafs.flutter_plugin_playlist.network;
+
+public final class MediaHttpClient {
+    public static Object get() {
+        return null;
+    }
+}
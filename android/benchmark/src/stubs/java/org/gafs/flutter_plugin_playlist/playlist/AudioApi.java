@@ -0,0 +1,15 @@
+package org.gafs.flutter_plugin_playlist.playlist;
+
+public class AudioApi {
+    public void preload(Object item) {
+    }
+
+    public void releasePreload() {
+    }
+
+    public void setVolume(float left, float right) {
+    }
+
+    public void setPlaybackSpeed(float speed) {
+    }
+}
@@ -0,0 +1,10 @@
+package org.gafs.flutter_plugin_playlist.playlist;
+
+import com.devbrackets.android.playlistcore.api.PlaylistItem;
+import com.devbrackets.android.playlistcore.components.playlisthandler.PlaylistHandler;
+import com.devbrackets.android.playlistcore.manager.BasePlaylistManager;
+
+public abstract class AudioPlaylistHandler<I extends PlaylistItem, M extends BasePlaylistManager<I>> extends PlaylistHandler<I> {
+    public void updateProgressPoll() {
+    }
+}
@@ -0,0 +1,6 @@
+package org.gafs.flutter_plugin_playlist.service;
+
+import android.app.Service;
+
+public class MediaService extends Service {
+}
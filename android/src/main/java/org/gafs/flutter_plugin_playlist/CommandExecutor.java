@@ -0,0 +1,142 @@
+package org.gafs.flutter_plugin_playlist;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.gafs.flutter_plugin_playlist.metrics.Histogram;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs plugin commands in two stages: prepare() on a single background thread,
+ * for the work that doesn't touch the player (e.g. turning thousands of track maps
+ * into AudioTracks), then apply() back on the main looper with the result.
+ * <p>
+ * Commands complete in the order they were submitted. While any are in flight,
+ * isIdle() is false and later commands, even ones with nothing to prepare, must go
+ * through here too so they don't overtake them.
+ * <p>
+ * For each command name, it keeps a Histogram of how long commands waited in the queue
+ * and one of how long they took to prepare and apply. execute() and isIdle() must be
+ * called on the main thread.
+ */
+class CommandExecutor {
+  private static final String TAG = "CommandExecutor";
+
+  interface Command {
+    // Called on the executor thread, may return null.
+    Object prepare() throws Exception;
+
+    // Called on the main thread with the result of prepare.
+    void apply(Object prepared);
+
+    // Called on the main thread instead of apply if prepare threw.
+    void fail(Exception e);
+  }
+
+  static class Stats {
+    final Histogram queue = new Histogram();
+    final Histogram execution = new Histogram();
+
+    Map<String, Object> toMap() {
+      Map<String, Object> stats = new HashMap<>();
+      stats.put("queue", queue.toMap());
+      stats.put("execution", execution.toMap());
+      return stats;
+    }
+  }
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, TAG);
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final HashMap<String, Stats> stats = new HashMap<>();
+
+  private int pending = 0;
+  // Logs the timings of every command, from the "verbose" option.
+  private volatile boolean verbose = false;
+
+  void setVerbose(boolean verbose) {
+    this.verbose = verbose;
+  }
+
+  boolean isIdle() {
+    return pending == 0;
+  }
+
+  void execute(final String name, final Command command) {
+    final long queuedAt = System.nanoTime();
+    pending++;
+
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final long preparedFrom = System.nanoTime();
+        Object result = null;
+        Exception error = null;
+        try {
+          result = command.prepare();
+        } catch (Exception e) {
+          error = e;
+        }
+        final long preparedTo = System.nanoTime();
+
+        final Object prepared = result;
+        final Exception prepareError = error;
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            long appliedFrom = System.nanoTime();
+            try {
+              if (prepareError != null) {
+                Log.e(TAG, "Error preparing " + name, prepareError);
+                command.fail(prepareError);
+              } else {
+                command.apply(prepared);
+              }
+            } finally {
+              pending--;
+              record(name, preparedFrom - queuedAt, (preparedTo - preparedFrom) + (System.nanoTime() - appliedFrom));
+            }
+          }
+        });
+      }
+    });
+  }
+
+  synchronized Map<String, Object> getStats() {
+    Map<String, Object> result = new HashMap<>();
+    for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().toMap());
+    }
+    return result;
+  }
+
+  private synchronized void record(String name, long queueNanos, long executionNanos) {
+    Stats entry = stats.get(name);
+    if (entry == null) {
+      entry = new Stats();
+      stats.put(name, entry);
+    }
+
+    double queueMs = queueNanos / 1000000.0;
+    double executionMs = executionNanos / 1000000.0;
+    entry.queue.record(queueMs);
+    entry.execution.record(executionMs);
+
+    if (verbose) {
+      Log.v(TAG, name + ": queued " + queueMs + "ms, executed in " + executionMs + "ms");
+    }
+  }
+}
@@ -10,16 +10,24 @@ import android.util.Log;
 
 import com.devbrackets.android.playlistcore.data.MediaProgress;
 
+import org.gafs.flutter_plugin_playlist.cache.MediaCache;
 import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+import org.gafs.flutter_plugin_playlist.download.MediaDownloadManager;
 import org.gafs.flutter_plugin_playlist.manager.PlaylistManager;
+import org.gafs.flutter_plugin_playlist.metrics.Histogram;
+import org.gafs.flutter_plugin_playlist.metrics.StartupMetrics;
+import org.gafs.flutter_plugin_playlist.network.MediaHttpClient;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
@@ -40,12 +48,39 @@ public class FlutterPluginPlaylistPlugin implements MethodCallHandler, RmxConsta
 
   private MethodChannel channel;
 
+  private BasicMessageChannel<ByteBuffer> statusChannel;
+
   private RmxAudioPlayer audioPlayerImpl;
 
   private boolean resetStreamOnPause = true;
 
-  private FlutterPluginPlaylistPlugin(MethodChannel channel) {
+  private final StatusBatcher statusBatcher;
+
+  private final CommandExecutor commandExecutor = new CommandExecutor();
+
+  // Action name to its handler, see registerActions.
+  private final HashMap<String, Action> actions = new HashMap<>();
+
+  // Logs the arguments of every call, from the "verbose" option.
+  private boolean verbose = false;
+
+  // Identifies the playlist being loaded in chunks: set by SET_PLAYLIST_ITEMS, and
+  // APPEND_PLAYLIST_ITEMS is ignored unless it carries the same id.
+  private Object playlistLoadId;
+
+  // When set, bulk playlist changes raise one ITEMS_ADDED / ITEMS_REMOVED event
+  // instead of an ITEM_ADDED / ITEM_REMOVED per track. Read by prepareTrackItems too.
+  private volatile boolean bulkItemEvents = false;
+
+  private FlutterPluginPlaylistPlugin(final MethodChannel channel) {
       this.channel = channel;
+      this.statusBatcher = new StatusBatcher(new StatusBatcher.Sink() {
+        @Override
+        public void sendBatch(List<Map<String, Object>> batch) {
+          channel.invokeMethod(RmxConstants.STATUS_BATCH, batch);
+        }
+      });
+      registerActions();
   }
 
   /** Plugin registration. */
@@ -56,6 +91,7 @@ public class FlutterPluginPlaylistPlugin implements MethodCallHandler, RmxConsta
 
     // Plugin instance
     FlutterPluginPlaylistPlugin plugin = new FlutterPluginPlaylistPlugin(channel);
+    plugin.statusChannel = new BasicMessageChannel<>(registrar.messenger(), STATUS_CHANNEL, BinaryCodec.INSTANCE);
 
     // register the plugin as the method call handler
     channel.setMethodCallHandler(plugin);
@@ -63,8 +99,10 @@ public class FlutterPluginPlaylistPlugin implements MethodCallHandler, RmxConsta
     // create and link the audioPlayer with the plugin
     plugin.audioPlayerImpl = new RmxAudioPlayer(plugin);
 
-    PlaylistManager.getInstance().registerProgressListener(plugin.audioPlayerImpl);
-    PlaylistManager.getInstance().registerPlaylistListener(plugin.audioPlayerImpl);
+    PlaylistManager.getInstance().addProgressListener(plugin.audioPlayerImpl);
+    PlaylistManager.getInstance().addPlaylistListener(plugin.audioPlayerImpl);
+
+    MediaDownloadManager.getInstance().setListener(plugin.new DownloadStatusListener());
 
     AudioTrack.setAssetResolver(new AudioTrack.AssetResolver() {
       @Override
@@ -76,259 +114,658 @@ public class FlutterPluginPlaylistPlugin implements MethodCallHandler, RmxConsta
 
   @Override
   public void onMethodCall(final MethodCall call, final Result result) {
-    String action = call.method;
+    final Action action = actions.get(call.method);
+
+    // Stringifying the arguments can mean a whole playlist, so only when asked for.
+    if (verbose) {
+      Log.d(TAG, "execute: " + call.method + ": ===> " + call.arguments);
+    }
+
+    if (action == null) {
+      result.notImplemented();
+      return;
+    }
+
+    // Playlist commands convert their items off the main thread. Anything that
+    // arrives while one of them is in flight queues up behind it to keep the order.
+    if (action instanceof PreparedAction || !commandExecutor.isIdle()) {
+      commandExecutor.execute(call.method, new CommandExecutor.Command() {
+        @Override
+        public Object prepare() {
+          return action instanceof PreparedAction ? ((PreparedAction) action).prepare(call) : null;
+        }
+
+        @Override
+        public void apply(Object prepared) {
+          runAction(action, call, result, prepared);
+        }
+
+        @Override
+        public void fail(Exception e) {
+          result.error(call.method, e.toString(), null);
+        }
+      });
+      return;
+    }
+
+    runAction(action, call, result, null);
+  }
+
+  private void runAction(Action action, MethodCall call, Result result, Object prepared) {
+    long start = System.nanoTime();
+    try {
+      action.handle(call, result, prepared);
+    } finally {
+      action.latency.record((System.nanoTime() - start) / 1000000.0);
+    }
+  }
+
+  /*
+   * How often each action was called and how long it held the main thread, in ms.
+   */
+  private Map<String, Object> getActionMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    for (Map.Entry<String, Action> entry : actions.entrySet()) {
+      if (entry.getValue().latency.getCount() > 0) {
+        metrics.put(entry.getKey(), entry.getValue().latency.toMap());
+      }
+    }
+    return metrics;
+  }
+
+  /*
+   * Runs on the CommandExecutor thread. Builds the AudioTracks, with their
+   * dictionaries too unless they won't be sent one by one.
+   */
+  private ArrayList<AudioTrack> prepareTrackItems(List<Map<?, ?>> items) {
+    ArrayList<AudioTrack> trackItems = getTrackItems(items);
+    if (!bulkItemEvents) {
+      for (AudioTrack track : trackItems) {
+        track.toDict();
+      }
+    }
+    return trackItems;
+  }
 
-    Log.i(TAG, "execute: " + action + ": ===> " + call.arguments);
+  /*
+   * An entry in the action table. handle runs on the main thread, with the result
+   * of prepare for a PreparedAction, null otherwise.
+   */
+  private abstract class Action {
+    // Time spent in handle, see getActionMetrics.
+    final Histogram latency = new Histogram();
 
+    abstract void handle(MethodCall call, Result result, Object prepared);
+  }
+
+  /*
+   * An action with work to do before it touches the player or the playlist,
+   * like turning thousands of track maps into AudioTracks. prepare runs on
+   * the CommandExecutor thread, so it must not touch either.
+   */
+  private abstract class PreparedAction extends Action {
+    abstract Object prepare(MethodCall call);
+  }
+
+  /*
+   * Fills the action table onMethodCall dispatches through, one entry per RmxConstants action.
+   */
+  private void registerActions() {
     // capture callback
-    if (INITIALIZE.equals(action)) {
-      onStatus(RmxAudioStatusMessage.RMXSTATUS_REGISTER, "INIT", null);
-      result.success(true);
-    } else if (SET_OPTIONS.equals(action)) {
-      Boolean resetStreamOnPause = call.argument("resetStreamOnPause");
+    actions.put(INITIALIZE, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        // Dart may have restarted, and lost the track ids and status it had.
+        audioPlayerImpl.resetStatusStreams();
+        onStatus(RmxAudioStatusMessage.RMXSTATUS_REGISTER, "INIT", null);
+        onPlaylistRestored();
+        result.success(true);
+      }
+    });
+    actions.put(SET_OPTIONS, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        Boolean resetStreamOnPause = call.argument("resetStreamOnPause");
+
+        if (resetStreamOnPause == null) {
+          resetStreamOnPause = FlutterPluginPlaylistPlugin.this.resetStreamOnPause;
+        }
+
+        audioPlayerImpl.setResetStreamOnPause(resetStreamOnPause);
+
+        Boolean verbose = call.argument("verbose");
+        if (verbose != null) {
+          FlutterPluginPlaylistPlugin.this.verbose = verbose;
+          commandExecutor.setVerbose(verbose);
+        }
+
+        // Milliseconds to collect status messages before sending them as one list; 0 sends each one immediately.
+        Number statusBatchWindow = call.argument("statusBatchWindow");
+        if (statusBatchWindow != null) {
+          statusBatcher.setWindow(statusBatchWindow.longValue());
+        }
+
+        // "binary" sends player status events as StatusEncoder records over STATUS_CHANNEL; "map" is the default.
+        String statusFormat = call.argument("statusFormat");
+        if (statusFormat != null) {
+          audioPlayerImpl.setBinaryStatus(STATUS_FORMAT_BINARY.equals(statusFormat));
+        }
 
-      if (resetStreamOnPause == null) {
-        resetStreamOnPause = this.resetStreamOnPause;
+        // Position and buffering events only carry the fields that changed; applies to the "map" format.
+        Boolean statusDelta = call.argument("statusDelta");
+        if (statusDelta != null) {
+          audioPlayerImpl.setDeltaStatus(statusDelta);
+        }
+
+        // One event per bulk playlist change rather than one per track.
+        Boolean bulkItemEvents = call.argument("bulkItemEvents");
+        if (bulkItemEvents != null) {
+          FlutterPluginPlaylistPlugin.this.bulkItemEvents = bulkItemEvents;
+        }
+
+        // Prepare the next item on a second player so it starts without a gap.
+        Boolean preloadNext = call.argument("preloadNext");
+        if (preloadNext != null) {
+          audioPlayerImpl.getPlaylistManager().setPreloadNext(preloadNext);
+        }
+
+        // Keep the queue on disk and restore it when the app starts again.
+        Boolean persistQueue = call.argument("persistQueue");
+        if (persistQueue != null) {
+          audioPlayerImpl.getPlaylistManager().setPersistQueue(persistQueue);
+        }
+
+        // Progress poll delays in milliseconds for each state; 0 stops polling in that state.
+        PlaylistManager playlistManager = audioPlayerImpl.getPlaylistManager();
+        playlistManager.setProgressPollDelays(
+                option((Number) call.argument("progressPollPlaying"), playlistManager.getProgressPollPlaying()).longValue(),
+                option((Number) call.argument("progressPollSeeking"), playlistManager.getProgressPollSeeking()).longValue(),
+                option((Number) call.argument("progressPollPaused"), playlistManager.getProgressPollPaused()).longValue(),
+                option((Number) call.argument("progressPollBackground"), playlistManager.getProgressPollBackground()).longValue());
+
+        // Media cache settings, applied when the cache is (re)created, i.e. before the first track loads or after release.
+        Number cacheMaxBytes = call.argument("cacheMaxBytes");
+        String cacheDirectory = call.argument("cacheDirectory");
+        String cacheEvictor = call.argument("cacheEvictor");
+        if (cacheMaxBytes != null || cacheDirectory != null || cacheEvictor != null) {
+          MediaCache.configure(
+                  cacheDirectory != null ? new File(cacheDirectory) : MediaCache.getDirectory(),
+                  option(cacheMaxBytes, (Number) MediaCache.getMaxBytes()).longValue(),
+                  option(cacheEvictor, MediaCache.getEvictor()));
+        }
+
+        // How many upcoming tracks to prefetch (0 disables it) and how many bytes of each.
+        Number prefetchCount = call.argument("prefetchCount");
+        Number prefetchBytes = call.argument("prefetchBytes");
+        if (prefetchCount != null || prefetchBytes != null) {
+          playlistManager.getPrefetcher().configure(
+                  option(prefetchCount, (Number) playlistManager.getPrefetcher().getDepth()).intValue(),
+                  option(prefetchBytes, (Number) playlistManager.getPrefetcher().getBytesPerItem()).longValue());
+        }
+
+        Number downloadConcurrency = call.argument("downloadConcurrency");
+        if (downloadConcurrency != null) {
+          MediaDownloadManager.getInstance().setConcurrency(downloadConcurrency.intValue());
+        }
+
+        // HTTP client settings shared by audio and artwork; times are in milliseconds.
+        Number httpMaxIdleConnections = call.argument("httpMaxIdleConnections");
+        Number httpKeepAlive = call.argument("httpKeepAlive");
+        Number httpConnectTimeout = call.argument("httpConnectTimeout");
+        Number httpReadTimeout = call.argument("httpReadTimeout");
+        Boolean httpEnableHttp2 = call.argument("httpEnableHttp2");
+        if (httpMaxIdleConnections != null || httpKeepAlive != null || httpConnectTimeout != null
+                || httpReadTimeout != null || httpEnableHttp2 != null) {
+          MediaHttpClient.configure(
+                  option(httpMaxIdleConnections, (Number) MediaHttpClient.getMaxIdleConnections()).intValue(),
+                  option(httpKeepAlive, (Number) MediaHttpClient.getKeepAliveMs()).longValue(),
+                  option(httpConnectTimeout, (Number) MediaHttpClient.getConnectTimeoutMs()).longValue(),
+                  option(httpReadTimeout, (Number) MediaHttpClient.getReadTimeoutMs()).longValue(),
+                  option(httpEnableHttp2, MediaHttpClient.getHttp2()));
+        }
+        // We don't do anything with these yet.
+        result.success(call.arguments);
       }
+    });
+    actions.put(RELEASE, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        destroyResources();
+        result.success(true);
 
-      audioPlayerImpl.setResetStreamOnPause(resetStreamOnPause);
-      // We don't do anything with these yet.
-      result.success(call.arguments);
-    } else if (RELEASE.equals(action)) {
-      destroyResources();
-      result.success(true);
-    } else
+      }
+    });
 
     // Playlist management
-    if (SET_PLAYLIST_ITEMS.equals(action)) {
-      List<Map<?, ?>> items = (List<Map<?, ?>>) call.argument("items");
-      Map<?, ?> optionsArgs = call.argument("options");
-      PlaylistItemOptions options = new PlaylistItemOptions(optionsArgs);
+    actions.put(SET_PLAYLIST_ITEMS, new PreparedAction() {
+      @Override
+      Object prepare(MethodCall call) {
+        return prepareTrackItems((List<Map<?, ?>>) call.argument("items"));
+      }
 
-      ArrayList<AudioTrack> trackItems = getTrackItems(items);
-      audioPlayerImpl.getPlaylistManager().setAllItems(trackItems, options);
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        List<Map<?, ?>> items = (List<Map<?, ?>>) call.argument("items");
+        Map<?, ?> optionsArgs = call.argument("options");
+        PlaylistItemOptions options = new PlaylistItemOptions(optionsArgs);
+
+        ArrayList<AudioTrack> trackItems = prepared != null ? (ArrayList<AudioTrack>) prepared : getTrackItems(items);
+        playlistLoadId = call.argument("loadId");
+        audioPlayerImpl.getPlaylistManager().setAllItems(trackItems, options);
+
+        onItemsAdded(trackItems, 0);
+
+        result.success(true);
+      }
+    });
+    actions.put(ADD_PLAYLIST_ITEM, new PreparedAction() {
+      @Override
+      Object prepare(MethodCall call) {
+        AudioTrack playerItem = getTrackItem((Map<?, ?>) call.argument("item"));
+        if (playerItem != null) {
+          playerItem.toDict();
+        }
+        return playerItem;
+      }
+
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        Map<String, Object> args = (Map<String, Object>) call.arguments;
+        Map<?, ?> item = (Map<?, ?>) args.get("item");
+        AudioTrack playerItem = prepared != null ? (AudioTrack) prepared : getTrackItem(item);
+
+        Number index = (Number) args.get("index");
+
+        if (playerItem != null) {
+          if (index != null && index.intValue() >= 0) {
+            audioPlayerImpl.getPlaylistManager().insertItem(playerItem, index.intValue());
+          } else {
+            audioPlayerImpl.getPlaylistManager().addItem(playerItem); // makes its own check for null
+          }
 
-      for (AudioTrack playerItem : trackItems) {
-        if (playerItem.getTrackId() != null) {
           onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEM_ADDED, playerItem.getTrackId(), playerItem.toDict());
         }
+
+        result.success(true);
+      }
+    });
+    actions.put(ADD_PLAYLIST_ITEMS, new PreparedAction() {
+      @Override
+      Object prepare(MethodCall call) {
+        return prepareTrackItems((List<Map<?, ?>>) call.argument("items"));
       }
 
-      result.success(true);
-    } else if (ADD_PLAYLIST_ITEM.equals(action)) {
-      Map<String, Object> args = (Map<String, Object>) call.arguments;
-      Map<?, ?> item = (Map<?, ?>) args.get("item");
-      AudioTrack playerItem = getTrackItem(item);
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        Map<String, Object> args = (Map<String, Object>) call.arguments;
+        List<Map<?, ?>> items = (List<Map<?, ?>>) args.get("items");
+        ArrayList<AudioTrack> trackItems = prepared != null ? (ArrayList<AudioTrack>) prepared : getTrackItems(items);
 
-      Number index = (Number) args.get("index");
+        Number index = (Number) args.get("index");
+        int insertedAt;
 
-      if (playerItem.getTrackId() != null) {
         if (index != null && index.intValue() >= 0) {
-          audioPlayerImpl.getPlaylistManager().insertItem(playerItem, index.intValue());
+          insertedAt = index.intValue();
+          audioPlayerImpl.getPlaylistManager().insertAllItems(trackItems, insertedAt);
         } else {
-          audioPlayerImpl.getPlaylistManager().addItem(playerItem); // makes its own check for null
+          insertedAt = audioPlayerImpl.getPlaylistManager().getItemCount();
+          audioPlayerImpl.getPlaylistManager().addAllItems(trackItems);
         }
 
-        onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEM_ADDED, playerItem.getTrackId(), playerItem.toDict());
-      }
+        onItemsAdded(trackItems, insertedAt);
 
-      result.success(true);
-    } else if (ADD_PLAYLIST_ITEMS.equals(action)) {
-      Map<String, Object> args = (Map<String, Object>) call.arguments;
-      List<Map<?, ?>> items = (List<Map<?, ?>>) args.get("items");
-      ArrayList<AudioTrack> trackItems = getTrackItems(items);
+        result.success(true);
+      }
+    });
+    actions.put(APPEND_PLAYLIST_ITEMS, new PreparedAction() {
+      @Override
+      Object prepare(MethodCall call) {
+        return prepareTrackItems((List<Map<?, ?>>) call.argument("items"));
+      }
 
-      Number index = (Number) args.get("index");
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        // The rest of a playlist started with SET_PLAYLIST_ITEMS. These go on the end without
+        // touching the current item or its position. A chunk for a playlist that has since
+        // been replaced or cleared is dropped, and false tells the sender to stop.
+        Object loadId = call.argument("loadId");
+        if (loadId == null || !loadId.equals(playlistLoadId)) {
+          result.success(false);
+          return;
+        }
 
-      if (index != null && index.intValue() >= 0) {
-        audioPlayerImpl.getPlaylistManager().insertAllItems(trackItems, index.intValue());
-      } else {
+        List<Map<?, ?>> items = call.argument("items");
+        ArrayList<AudioTrack> trackItems = prepared != null ? (ArrayList<AudioTrack>) prepared : getTrackItems(items);
+        int insertedAt = audioPlayerImpl.getPlaylistManager().getItemCount();
         audioPlayerImpl.getPlaylistManager().addAllItems(trackItems);
+
+        onItemsAdded(trackItems, insertedAt);
+
+        result.success(true);
       }
+    });
+    actions.put(REMOVE_PLAYLIST_ITEM, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        Map<?, ?> removal = (Map<?, ?>) call.arguments;
 
-      for (AudioTrack playerItem : trackItems) {
-        if (playerItem.getTrackId() != null) {
-          onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEM_ADDED, playerItem.getTrackId(), playerItem.toDict());
+        int trackIndex = option((Number) removal.get("trackIndex"), -1).intValue();
+        String trackId = option((String) removal.get("trackId"), "");
+        AudioTrack item = audioPlayerImpl.getPlaylistManager().removeItem(trackIndex, trackId);
+
+        if (item != null) {
+          onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEM_REMOVED, item.getTrackId(), item.toDict());
+          result.success(true);
+        } else {
+          result.error("RMXSTATUS_ITEM_REMOVED_FAIL", "RMXSTATUS_ITEM_REMOVED_FAIL", false);
         }
       }
+    });
+    actions.put(REMOVE_PLAYLIST_ITEMS, new PreparedAction() {
+      @Override
+      Object prepare(MethodCall call) {
+        return getRemovalItems((List<Map<?, ?>>) call.arguments);
+      }
 
-      result.success(true);
-    } else if (REMOVE_PLAYLIST_ITEM.equals(action)) {
-      Map<?, ?> removal = (Map<?, ?>) call.arguments;
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        List<Map<?, ?>> items = (List<Map<?, ?>>) call.arguments;
+        int removed = 0;
+
+        if (items != null) {
+          ArrayList<TrackRemovalItem> removals = prepared != null
+                  ? (ArrayList<TrackRemovalItem>) prepared : getRemovalItems(items);
 
-      int trackIndex = option((Number) removal.get("trackIndex"), -1).intValue();
-      String trackId = option((String) removal.get("trackId"), "");
-      AudioTrack item = audioPlayerImpl.getPlaylistManager().removeItem(trackIndex, trackId);
+          ArrayList<AudioTrack> removedTracks = audioPlayerImpl.getPlaylistManager().removeAllItems(removals);
+
+          onItemsRemoved(removedTracks);
+          removed = removedTracks.size();
+        }
+
+        result.success(removed);
+      }
+    });
+    actions.put(CLEAR_PLAYLIST_ITEMS, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        audioPlayerImpl.getPlaylistManager().clearItems();
+        playlistLoadId = null;
 
-      if (item != null) {
-        onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEM_REMOVED, item.getTrackId(), item.toDict());
+        onStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYLIST_CLEARED, "INVALID", null);
         result.success(true);
-      } else {
-        result.error("RMXSTATUS_ITEM_REMOVED_FAIL", "RMXSTATUS_ITEM_REMOVED_FAIL", false);
-      }
-    } else if (REMOVE_PLAYLIST_ITEMS.equals(action)) {
-      List<Map<?, ?>> items = (List<Map<?, ?>>) call.arguments;
-      int removed = 0;
-
-      if (items != null) {
-        ArrayList<TrackRemovalItem> removals = new ArrayList<>();
-        for (int index = 0; index < items.size(); index++) {
-          Map<?, ?> entry = items.get(index);
-          if (entry == null) {
-            continue;
-          }
-          int trackIndex = option((Number) entry.get("trackIndex"), -1).intValue();
-          String trackId = option((String) entry.get("trackId"), "");
-          removals.add(new TrackRemovalItem(trackIndex, trackId));
+      }
+    });
+    actions.put(SWITCH_PLAYLIST, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        String name = (String) call.arguments;
+        if (name == null || "".equals(name)) {
+          result.error(SWITCH_PLAYLIST, "A playlist name is required", null);
+          return;
+        }
 
-          ArrayList<AudioTrack> removedTracks = audioPlayerImpl.getPlaylistManager().removeAllItems(removals);
+        // A chunked load still running belongs to the playlist being switched away from.
+        if (!name.equals(audioPlayerImpl.getPlaylistManager().getPlaylistName())) {
+          playlistLoadId = null;
+        }
+        audioPlayerImpl.getPlaylistManager().switchPlaylist(name);
+        result.success(true);
+      }
+    });
+    actions.put(REMOVE_PLAYLIST, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        String name = (String) call.arguments;
+        result.success(name != null && audioPlayerImpl.getPlaylistManager().removePlaylist(name));
+      }
+    });
+    actions.put(GET_PLAYLIST_NAMES, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        result.success(audioPlayerImpl.getPlaylistManager().getPlaylistNames());
 
-          if (removedTracks.size() > 0) {
-            for (AudioTrack removedItem : removedTracks) {
-              onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEM_REMOVED, removedItem.getTrackId(), removedItem.toDict());
-            }
-            removed = removedTracks.size();
+      }
+    });
+
+    // Offline downloads
+    actions.put(DOWNLOAD_ITEMS, new PreparedAction() {
+      @Override
+      Object prepare(MethodCall call) {
+        return getTrackItems((List<Map<?, ?>>) call.arguments);
+      }
+
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        List<Map<?, ?>> items = (List<Map<?, ?>>) call.arguments;
+        ArrayList<AudioTrack> trackItems = prepared != null ? (ArrayList<AudioTrack>) prepared : getTrackItems(items);
+        int started = 0;
+
+        for (AudioTrack track : trackItems) {
+          if (MediaDownloadManager.getInstance().download(track)) {
+            started++;
           }
         }
-      }
 
-      result.success(removed);
-    } else if (CLEAR_PLAYLIST_ITEMS.equals(action)) {
-      audioPlayerImpl.getPlaylistManager().clearItems();
+        result.success(started);
+      }
+    });
+    actions.put(CANCEL_DOWNLOAD, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        String trackId = (String) call.arguments;
+        result.success(trackId != null && MediaDownloadManager.getInstance().cancel(trackId));
+      }
+    });
+    actions.put(REMOVE_DOWNLOAD, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        String trackId = (String) call.arguments;
+        result.success(trackId != null && MediaDownloadManager.getInstance().remove(trackId));
 
-      onStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYLIST_CLEARED, "INVALID", null);
-      result.success(true);
-    } else
+      }
+    });
 
     // Playback
-    if (PLAY.equals(action)) {
-      if (audioPlayerImpl.getPlaylistManager().getPlaylistHandler() != null) {
-        boolean isPlaying = audioPlayerImpl.getPlaylistManager().getPlaylistHandler().getCurrentMediaPlayer() != null
-                && audioPlayerImpl.getPlaylistManager().getPlaylistHandler().getCurrentMediaPlayer().isPlaying();
-        // There's a bug in the threaded repeater that it stacks up the repeat calls instead of ignoring
-        // additional ones or starting a new one. E.g. every time this is called, you'd get a new repeat cycle,
-        // meaning you get N updates per second. Ew.
-        if (!isPlaying) {
-          audioPlayerImpl.getPlaylistManager().getPlaylistHandler().play();
-          //audioPlayerImpl.getPlaylistManager().getPlaylistHandler().seek(position);
+    actions.put(PLAY, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        if (audioPlayerImpl.getPlaylistManager().getPlaylistHandler() != null) {
+          boolean isPlaying = audioPlayerImpl.getPlaylistManager().getPlaylistHandler().getCurrentMediaPlayer() != null
+                  && audioPlayerImpl.getPlaylistManager().getPlaylistHandler().getCurrentMediaPlayer().isPlaying();
+          // The threaded repeater used to stack up repeat calls when play was called again.
+          // AudioPlaylistHandler.updateProgressPoll now restarts it instead, but there is still
+          // no point in raising PLAYING twice.
+          if (!isPlaying) {
+            audioPlayerImpl.getPlaylistManager().getPlaylistHandler().play();
+            //audioPlayerImpl.getPlaylistManager().getPlaylistHandler().seek(position);
+
+            if (audioPlayerImpl.getPlaylistManager().getCurrentItem() != null) {
+              audioPlayerImpl.reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYING,
+                      audioPlayerImpl.getPlaylistManager().getCurrentItem(), null);
+            }
+          }
 
           if (audioPlayerImpl.getPlaylistManager().getCurrentItem() != null) {
-            onStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYING,
-                    audioPlayerImpl.getPlaylistManager().getCurrentItem().getTrackId(),
-                    audioPlayerImpl.getPlayerStatus(audioPlayerImpl.getPlaylistManager().getCurrentItem()));
+            result.success(audioPlayerImpl.getPlayerStatus(audioPlayerImpl.getPlaylistManager().getCurrentItem()));
+          } else {
+            result.success(null);
           }
-        }
 
-        if (audioPlayerImpl.getPlaylistManager().getCurrentItem() != null) {
-          result.success(audioPlayerImpl.getPlayerStatus(audioPlayerImpl.getPlaylistManager().getCurrentItem()));
+        } else if (audioPlayerImpl.getPlaylistManager().getItemCount() > 0){
+          // A restored queue resumes where it was left, anything else starts from the top.
+          long restoredPosition = audioPlayerImpl.getPlaylistManager().takeRestoredPlaybackPosition();
+          if (restoredPosition < 0) {
+            audioPlayerImpl.getPlaylistManager().setCurrentPosition(0);
+          }
+          audioPlayerImpl.getPlaylistManager().beginPlayback(Math.max(0, restoredPosition), false);
         } else {
-          result.success(null);
+          result.error(PLAY, PLAY, null);
         }
-
-      } else if (audioPlayerImpl.getPlaylistManager().getItemCount() > 0){
-        audioPlayerImpl.getPlaylistManager().setCurrentPosition(0);
-        audioPlayerImpl.getPlaylistManager().beginPlayback(0, false);
-      } else {
-        result.error(PLAY, PLAY, null);
-      }
-    } else if (PLAY_BY_INDEX.equals(action)) {
-      Map<String, Object> args = (Map<String, Object>) call.arguments;
-      int index = option((Number) args.get("index"), audioPlayerImpl.getPlaylistManager().getCurrentPosition()).intValue();
-      long seekPosition = (long)(option((Number) args.get("position"), 0).longValue() * 1000.0);
-
-      audioPlayerImpl.getPlaylistManager().setCurrentPosition(index);
-      audioPlayerImpl.getPlaylistManager().beginPlayback(seekPosition, false);
-      result.success(true);
-    } else if (PLAY_BY_ID.equals(action)) {
-      Map<String, Object> args = (Map<String, Object>) call.arguments;
-      String trackId = (String) args.get("trackId");
-      if (!"".equals((trackId))) {
-        // alternatively we could search for the item and set the current index to that item.
-        int code = trackId.hashCode();
+      }
+    });
+    actions.put(PLAY_BY_INDEX, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        Map<String, Object> args = (Map<String, Object>) call.arguments;
+        int index = option((Number) args.get("index"), audioPlayerImpl.getPlaylistManager().getCurrentPosition()).intValue();
         long seekPosition = (long)(option((Number) args.get("position"), 0).longValue() * 1000.0);
-        audioPlayerImpl.getPlaylistManager().setCurrentItem(code);
+
+        audioPlayerImpl.getPlaylistManager().setCurrentPosition(index);
         audioPlayerImpl.getPlaylistManager().beginPlayback(seekPosition, false);
+        result.success(true);
+      }
+    });
+    actions.put(PLAY_BY_ID, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        Map<String, Object> args = (Map<String, Object>) call.arguments;
+        String trackId = (String) args.get("trackId");
+        if (trackId != null && !"".equals((trackId))) {
+          long seekPosition = (long)(option((Number) args.get("position"), 0).longValue() * 1000.0);
+          audioPlayerImpl.getPlaylistManager().setCurrentTrackId(trackId);
+          audioPlayerImpl.getPlaylistManager().beginPlayback(seekPosition, false);
+        }
+        result.success(true);
+      }
+    });
+    actions.put(PAUSE, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        // Hmmm.
+        // audioPlayerImpl.getPlaylistManager().invokePausePlay();
+        if (audioPlayerImpl.getPlaylistManager().getPlaylistHandler() != null) {
+          audioPlayerImpl.getPlaylistManager().getPlaylistHandler().pause(true);
+        }
+        result.success(true);
+      }
+    });
+    actions.put(SKIP_FORWARD, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        audioPlayerImpl.getPlaylistManager().invokeNext();
+        result.success(true);
+      }
+    });
+    actions.put(SKIP_BACK, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        audioPlayerImpl.getPlaylistManager().invokePrevious();
+        result.success(true);
+
+
       }
-      result.success(true);
-    } else if (PAUSE.equals(action)) {
-      // Hmmm.
-      // audioPlayerImpl.getPlaylistManager().invokePausePlay();
-      if (audioPlayerImpl.getPlaylistManager().getPlaylistHandler() != null) {
-        audioPlayerImpl.getPlaylistManager().getPlaylistHandler().pause(true);
-      }
-      result.success(true);
-    } else if (SKIP_FORWARD.equals(action)) {
-      audioPlayerImpl.getPlaylistManager().invokeNext();
-      result.success(true);
-    } else if (SKIP_BACK.equals(action)) {
-      audioPlayerImpl.getPlaylistManager().invokePrevious();
-      result.success(true);
-    } else
+    });
 
     // On Android, the duration, playback position, etc are in milliseconds as whole numbers.
     // On iOS, it uses seconds as floats, e.g. 63.3 seconds. So we need to convert here.
+    actions.put(SEEK, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        long position = 0;
+        MediaProgress progress = audioPlayerImpl.getPlaylistManager().getCurrentProgress();
+        if (progress != null) {
+          position = progress.getPosition();
+        }
+        long positionVal = (long) (option((Number) call.arguments, position / 1000.0f).floatValue() * 1000.0);
 
-    if (SEEK.equals(action)) {
-      long position = 0;
-      MediaProgress progress = audioPlayerImpl.getPlaylistManager().getCurrentProgress();
-      if (progress != null) {
-        position = progress.getPosition();
-      }
-      long positionVal = (long) (option((Number) call.arguments, position / 1000.0f).floatValue() * 1000.0);
-
-      if (audioPlayerImpl.getPlaylistManager().getPlaylistHandler() != null) { // isPlaying &&
-        boolean isPlaying = audioPlayerImpl.getPlaylistManager().getPlaylistHandler().getCurrentMediaPlayer().isPlaying();
-        audioPlayerImpl.getPlaylistManager().getPlaylistHandler().seek(positionVal);
-        if (!isPlaying) {
-          audioPlayerImpl.getPlaylistManager().getPlaylistHandler().pause(false);
-        }
-      }
-
-      if (audioPlayerImpl.getPlaylistManager().getCurrentItem() != null) {
-        result.success(audioPlayerImpl.getPlayerStatus(audioPlayerImpl.getPlaylistManager().getCurrentItem()));
-      } else {
-        result.success(null);
-      }
-    } else if (SEEK_TO_QUEUE_POSITION.equals(action)) {
-      // Not supported at the moment
-      result.success(true);
-    } else if (SET_PLAYBACK_RATE.equals(action)) {
-      float speed = option(((Number) call.arguments), audioPlayerImpl.getPlaylistManager().getPlaybackSpeed()).floatValue();
-      audioPlayerImpl.getPlaylistManager().setPlaybackSpeed(speed);
-      result.success(true);
-    } else if (SET_PLAYBACK_VOLUME.equals(action)) {
-      float volume = option(((Number) call.arguments), audioPlayerImpl.getVolume()).floatValue();
-      audioPlayerImpl.setVolume(volume);
-      result.success(true);
-    } else if (SET_LOOP_ALL.equals(action)) {
-      Boolean loop = option(((Boolean) call.arguments), audioPlayerImpl.getPlaylistManager().getLoop());
-      audioPlayerImpl.getPlaylistManager().setLoop(loop);
-      result.success(true);
-    } else
+        if (audioPlayerImpl.getPlaylistManager().getPlaylistHandler() != null) { // isPlaying &&
+          boolean isPlaying = audioPlayerImpl.getPlaylistManager().getPlaylistHandler().getCurrentMediaPlayer().isPlaying();
+          audioPlayerImpl.getPlaylistManager().getPlaylistHandler().seek(positionVal);
+          if (!isPlaying) {
+            audioPlayerImpl.getPlaylistManager().getPlaylistHandler().pause(false);
+          }
+        }
+
+        if (audioPlayerImpl.getPlaylistManager().getCurrentItem() != null) {
+          result.success(audioPlayerImpl.getPlayerStatus(audioPlayerImpl.getPlaylistManager().getCurrentItem()));
+        } else {
+          result.success(null);
+        }
+      }
+    });
+    actions.put(SEEK_TO_QUEUE_POSITION, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        // Not supported at the moment
+        result.success(true);
+      }
+    });
+    actions.put(SET_PLAYBACK_RATE, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        float speed = option(((Number) call.arguments), audioPlayerImpl.getPlaylistManager().getPlaybackSpeed()).floatValue();
+        audioPlayerImpl.getPlaylistManager().setPlaybackSpeed(speed);
+        result.success(true);
+      }
+    });
+    actions.put(SET_PLAYBACK_VOLUME, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        float volume = option(((Number) call.arguments), audioPlayerImpl.getVolume()).floatValue();
+        audioPlayerImpl.setVolume(volume);
+        result.success(true);
+      }
+    });
+    actions.put(SET_LOOP_ALL, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        Boolean loop = option(((Boolean) call.arguments), audioPlayerImpl.getPlaylistManager().getLoop());
+        audioPlayerImpl.getPlaylistManager().setLoop(loop);
+        result.success(true);
+
+      }
+    });
 
     // Getters
-    if (GET_PLAYBACK_RATE.equals(action)) {
-      float speed = audioPlayerImpl.getPlaylistManager().getPlaybackSpeed();
-      result.success(speed);
-    } else if (GET_PLAYBACK_VOLUME.equals(action)) {
-      result.success(audioPlayerImpl.getVolume());
-    } else if (GET_PLAYBACK_POSITION.equals(action)) {
-      long position = 0;
-      MediaProgress progress = audioPlayerImpl.getPlaylistManager().getCurrentProgress();
-      if (progress != null) {
-        position = progress.getPosition();
-      }
-      result.success(position / 1000.0f);
-    } else if (GET_BUFFER_STATUS.equals(action)) {
-      result.success(audioPlayerImpl.getPlayerStatus(null));
-    } else if (GET_QUEUE_POSITION.equals(action)) {
-      // Not yet implemented on android. I'm not sure how to, since the tracks haven't loaded yet.
-      // On iOS, the AVQueuePlayer gets the metadata for all tracks immediately, that's why that works there.
-      float queuePosition = 0f;
-      result.success(queuePosition);
-    } else {
-      result.notImplemented();
-    }
+    actions.put(GET_PLAYBACK_RATE, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        float speed = audioPlayerImpl.getPlaylistManager().getPlaybackSpeed();
+        result.success(speed);
+      }
+    });
+    actions.put(GET_PLAYBACK_VOLUME, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        result.success(audioPlayerImpl.getVolume());
+      }
+    });
+    actions.put(GET_PLAYBACK_POSITION, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        long position = 0;
+        MediaProgress progress = audioPlayerImpl.getPlaylistManager().getCurrentProgress();
+        if (progress != null) {
+          position = progress.getPosition();
+        }
+        result.success(position / 1000.0f);
+      }
+    });
+    actions.put(GET_BUFFER_STATUS, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        result.success(audioPlayerImpl.getPlayerStatus(null));
+      }
+    });
+    actions.put(GET_QUEUE_POSITION, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        // Not yet implemented on android. I'm not sure how to, since the tracks haven't loaded yet.
+        // On iOS, the AVQueuePlayer gets the metadata for all tracks immediately, that's why that works there.
+        float queuePosition = 0f;
+        result.success(queuePosition);
+      }
+    });
+    actions.put(GET_METRICS, new Action() {
+      @Override
+      void handle(MethodCall call, Result result, Object prepared) {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("startup", StartupMetrics.toMap());
+        metrics.put("commands", commandExecutor.getStats());
+        metrics.put("actions", getActionMetrics());
+        result.success(metrics);
+      }
+    });
   }
 
   private AudioTrack getTrackItem(Map<?, ?> item) {
@@ -357,12 +794,128 @@ public class FlutterPluginPlaylistPlugin implements MethodCallHandler, RmxConsta
     return trackItems;
   }
 
+  /*
+   * If PlaylistManager restored a stored queue on startup, tells Dart what is in it.
+   * Playback doesn't start until PLAY, which resumes the current item where it was left.
+   */
+  private void onPlaylistRestored() {
+    PlaylistManager playlistManager = audioPlayerImpl.getPlaylistManager();
+    List<AudioTrack> trackItems = playlistManager.getQueue();
+    if (trackItems.isEmpty()) {
+      return;
+    }
+
+    AudioTrack currentItem = playlistManager.getCurrentItem();
+    MediaProgress progress = playlistManager.getCurrentProgress();
+    long restoredPosition = playlistManager.getRestoredPlaybackPosition();
+    long position = restoredPosition >= 0 ? restoredPosition : (progress != null ? progress.getPosition() : 0);
+
+    Map<String, Object> restored = new HashMap<>();
+    restored.put("count", trackItems.size());
+    restored.put("trackIds", getTrackIds(trackItems));
+    restored.put("currentIndex", playlistManager.getCurrentPosition());
+    restored.put("currentItem", currentItem != null ? currentItem.toDict() : null);
+    restored.put("currentPosition", position / 1000.0);
+    onStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYLIST_RESTORED, currentItem != null ? currentItem.getTrackId() : "INVALID", restored);
+  }
+
+  /*
+   * The per-track ITEM_ADDED events, or with bulkItemEvents a single ITEMS_ADDED
+   * whose value is the range the tracks now occupy and their ids.
+   */
+  private void onItemsAdded(List<AudioTrack> trackItems, int index) {
+    if (!bulkItemEvents) {
+      for (AudioTrack playerItem : trackItems) {
+        onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEM_ADDED, playerItem.getTrackId(), playerItem.toDict());
+      }
+      return;
+    }
+
+    if (trackItems.isEmpty()) {
+      return;
+    }
+    Map<String, Object> added = new HashMap<>();
+    added.put("index", index);
+    added.put("count", trackItems.size());
+    added.put("trackIds", getTrackIds(trackItems));
+    onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEMS_ADDED, "INVALID", added);
+  }
+
+  private void onItemsRemoved(List<AudioTrack> trackItems) {
+    if (!bulkItemEvents) {
+      for (AudioTrack removedItem : trackItems) {
+        onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEM_REMOVED, removedItem.getTrackId(), removedItem.toDict());
+      }
+      return;
+    }
+
+    if (trackItems.isEmpty()) {
+      return;
+    }
+    Map<String, Object> removed = new HashMap<>();
+    removed.put("count", trackItems.size());
+    removed.put("trackIds", getTrackIds(trackItems));
+    onStatus(RmxAudioStatusMessage.RMXSTATUS_ITEMS_REMOVED, "INVALID", removed);
+  }
+
+  private static ArrayList<String> getTrackIds(List<AudioTrack> trackItems) {
+    ArrayList<String> trackIds = new ArrayList<>(trackItems.size());
+    for (AudioTrack track : trackItems) {
+      trackIds.add(track.getTrackId());
+    }
+    return trackIds;
+  }
+
+  private ArrayList<TrackRemovalItem> getRemovalItems(List<Map<?, ?>> items) {
+    ArrayList<TrackRemovalItem> removals = new ArrayList<>();
+    if (items != null) {
+      for (int index = 0; index < items.size(); index++) {
+        Map<?, ?> entry = items.get(index);
+        if (entry == null) {
+          continue;
+        }
+        int trackIndex = option((Number) entry.get("trackIndex"), -1).intValue();
+        String trackId = option((String) entry.get("trackId"), "");
+        removals.add(new TrackRemovalItem(trackIndex, trackId));
+      }
+    }
+    return removals;
+  }
+
   private <T> T option(T value, T defaultValue) {
     return value != null ? value : defaultValue;
   }
 
   private void destroyResources() {
-    audioPlayerImpl.getPlaylistManager().clearItems();
+    audioPlayerImpl.getPlaylistManager().discardItems();
+    // The MediaCache stays, other threads may still be reading from it.
+    statusBatcher.flush();
+  }
+
+  private class DownloadStatusListener implements MediaDownloadManager.Listener {
+    @Override
+    public void onDownloadProgress(String trackId, long downloadedBytes, long totalBytes) {
+      Map<String, Object> progress = new HashMap<>();
+      progress.put("downloadedBytes", downloadedBytes);
+      progress.put("totalBytes", totalBytes);
+      progress.put("percent", totalBytes > 0 ? (downloadedBytes * 100.0) / totalBytes : 0);
+      onStatus(RmxAudioStatusMessage.RMXSTATUS_DOWNLOAD_PROGRESS, trackId, progress);
+    }
+
+    @Override
+    public void onDownloadCompleted(String trackId, String mediaUri) {
+      Map<String, Object> completed = new HashMap<>();
+      completed.put("mediaUri", mediaUri);
+      onStatus(RmxAudioStatusMessage.RMXSTATUS_DOWNLOAD_COMPLETED, trackId, completed);
+    }
+
+    @Override
+    public void onDownloadFailed(String trackId, String message) {
+      Map<String, Object> error = new HashMap<>();
+      error.put("code", RmxAudioErrorType.RMXERR_NETWORK.toString());
+      error.put("message", message != null ? message : "");
+      onStatus(RmxAudioStatusMessage.RMXSTATUS_DOWNLOAD_FAILED, trackId, error);
+    }
   }
 
   @Override
@@ -390,8 +943,25 @@ public class FlutterPluginPlaylistPlugin implements MethodCallHandler, RmxConsta
       Log.e(TAG, "Exception while raising onStatus: ", e);
     }
 
-    Log.v(TAG, "statusChanged:" + status.toString());
+    if (verbose) {
+      Log.v(TAG, "statusChanged:" + status.toString());
+    }
+
+    if (statusBatcher.isEnabled()) {
+      // Held until the batch goes out, by which time the player may have refilled the map.
+      if (param instanceof Map) {
+        status.put("value", new HashMap<>((Map<?, ?>) param));
+      }
+      statusBatcher.add(status);
+    } else {
+      channel.invokeMethod(RmxConstants.STATUS, status);
+    }
+  }
 
-    channel.invokeMethod(RmxConstants.STATUS, status);
+  @Override
+  public void onStatusRecord(ByteBuffer record) {
+    // Anything still batched on the method channel was raised first.
+    statusBatcher.flush();
+    statusChannel.send(record);
   }
 }
@@ -1,6 +1,10 @@
 package org.gafs.flutter_plugin_playlist;
 
+import java.nio.ByteBuffer;
+
 public interface OnStatusReportListener {
   void onError(RmxAudioErrorType errorCode, String trackId, String message);
+  // Player status maps are reused for the next event, so copy param to keep it past the call.
   void onStatus(RmxAudioStatusMessage what, String trackId, Object param);
+  void onStatusRecord(ByteBuffer record);
 }
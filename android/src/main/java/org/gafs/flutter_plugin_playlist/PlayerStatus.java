@@ -0,0 +1,136 @@
+package org.gafs.flutter_plugin_playlist;
+
+import com.devbrackets.android.playlistcore.data.MediaProgress;
+import com.devbrackets.android.playlistcore.data.PlaybackState;
+
+import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The player status of a track, held in primitive fields so that RmxAudioPlayer can
+ * refresh one instance on every progress tick without allocating. It is only turned
+ * into a channel payload, by toMap() or StatusEncoder, when an event is actually sent.
+ */
+class PlayerStatus {
+  private static final String[] STATUS_NAMES = {
+          "unknown", "stopped", "error", "seeking", "loading", "playing", "paused"
+  };
+
+  // null when there is no current item
+  String trackId;
+  boolean isStream;
+  int currentIndex;
+  // One of the StatusEncoder.STATE_* codes
+  byte state;
+  // All times are in milliseconds.
+  long position;
+  long duration;
+  int bufferPercent;
+  float bufferPercentFloat;
+
+  void update(AudioTrack item, PlaybackState playbackState, int currentIndex, MediaProgress progress) {
+    this.state = StatusEncoder.stateCode(playbackState);
+    this.currentIndex = currentIndex;
+
+    // The media players hold onto their current playback position between songs,
+    // despite my efforts to reset it. So we will just filter out this state.
+    this.position = progress != null ? progress.getPosition() : 0;
+
+    if (item != null) {
+      trackId = item.getTrackId();
+      isStream = item.getIsStream();
+      bufferPercentFloat = item.getBufferPercentFloat();
+      bufferPercent = item.getBufferPercent();
+      duration = item.getDuration();
+    } else {
+      trackId = null;
+      isStream = false;
+      bufferPercentFloat = 0;
+      bufferPercent = 0;
+      duration = 0;
+    }
+  }
+
+  String getStatusName() {
+    return state >= 0 && state < STATUS_NAMES.length ? STATUS_NAMES[state] : STATUS_NAMES[0];
+  }
+
+  Map<String, Object> toMap() {
+    Map<String, Object> trackStatus = new HashMap<>(16);
+    fillMap(trackStatus);
+    return trackStatus;
+  }
+
+  /*
+   * Writes the toMap() fields into a map that is reused from one event to the next.
+   * The keys are always the same, so only the values are replaced.
+   */
+  void fillMap(Map<String, Object> trackStatus) {
+    trackStatus.put("trackId", trackId != null ? trackId : "");
+    trackStatus.put("isStream", isStream);
+    trackStatus.put("currentIndex", currentIndex);
+    trackStatus.put("status", getStatusName());
+    trackStatus.put("currentPosition", position / 1000.0);
+    trackStatus.put("duration", duration / 1000.0);
+    trackStatus.put("playbackPercent", duration > 0 ? (((double)position / duration) * 100.0) : 0);
+    trackStatus.put("bufferPercent", bufferPercent);
+    trackStatus.put("bufferStart", 0.0);
+    trackStatus.put("bufferEnd", (bufferPercentFloat * duration) / 1000.0);
+  }
+
+  /*
+   * Like fillMap, but only the fields that differ from previous, which must be for
+   * the same track. trackId is always included, and "delta" marks the map so the
+   * receiver merges it into the last full status instead of replacing it.
+   * Whatever was in the map is cleared first.
+   */
+  void fillDeltaMap(Map<String, Object> trackStatus, PlayerStatus previous) {
+    trackStatus.clear();
+    trackStatus.put("trackId", trackId != null ? trackId : "");
+    trackStatus.put("delta", true);
+    if (isStream != previous.isStream) {
+      trackStatus.put("isStream", isStream);
+    }
+    if (currentIndex != previous.currentIndex) {
+      trackStatus.put("currentIndex", currentIndex);
+    }
+    if (state != previous.state) {
+      trackStatus.put("status", getStatusName());
+    }
+    if (position != previous.position) {
+      trackStatus.put("currentPosition", position / 1000.0);
+    }
+    if (duration != previous.duration) {
+      trackStatus.put("duration", duration / 1000.0);
+    }
+    if (position != previous.position || duration != previous.duration) {
+      trackStatus.put("playbackPercent", duration > 0 ? (((double)position / duration) * 100.0) : 0);
+    }
+    if (bufferPercent != previous.bufferPercent) {
+      trackStatus.put("bufferPercent", bufferPercent);
+    }
+    if (bufferPercentFloat != previous.bufferPercentFloat || duration != previous.duration) {
+      trackStatus.put("bufferEnd", (bufferPercentFloat * duration) / 1000.0);
+    }
+  }
+
+  void copyFrom(PlayerStatus other) {
+    trackId = other.trackId;
+    isStream = other.isStream;
+    currentIndex = other.currentIndex;
+    state = other.state;
+    position = other.position;
+    duration = other.duration;
+    bufferPercent = other.bufferPercent;
+    bufferPercentFloat = other.bufferPercentFloat;
+  }
+
+  @Override
+  public String toString() {
+    return "PlayerStatus{trackId=" + trackId + ", status=" + getStatusName()
+            + ", currentIndex=" + currentIndex + ", position=" + position
+            + ", duration=" + duration + ", bufferPercent=" + bufferPercent + "}";
+  }
+}
@@ -34,6 +34,7 @@ public class PlaylistItemOptions {
     this.playFromPosition = playFromPosition;
   }
 
+  @SuppressWarnings("unchecked")
   private <T> T getOption(String key, T defaultValue) {
     T value = (T) options.get(key);
     return value != null ? value : defaultValue;
@@ -14,6 +14,7 @@ import com.google.android.exoplayer2.ExoPlaybackException;
 import org.gafs.flutter_plugin_playlist.data.AudioTrack;
 import org.gafs.flutter_plugin_playlist.manager.MediaControlsListener;
 import org.gafs.flutter_plugin_playlist.manager.PlaylistManager;
+import org.gafs.flutter_plugin_playlist.metrics.StartupMetrics;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -29,9 +30,9 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
 
   public static String TAG = "RmxAudioPlayer";
 
-  // PlaylistCore requires this but we don't use it
-  // It would be used to switch between playlists. I guess we could
-  // support that in the future, might be cool.
+  // PlaylistCore requires this but we don't use it.
+  // Named playlists are switched by PlaylistManager.switchPlaylist instead,
+  // which swaps the items under this one playlistcore playlist.
   private static final int PLAYLIST_ID = 32;
   private OnStatusReportListener statusListener;
 
@@ -40,13 +41,29 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
   private boolean trackLoaded = false;
   private boolean resetStreamOnPause = true;
 
+  // When set, player status events go out as StatusEncoder records instead of maps.
+  private boolean binaryStatus = false;
+  private final StatusEncoder statusEncoder = new StatusEncoder();
+
+  // Refreshed in place for every status event, see updatePlayerStatus.
+  private final PlayerStatus playerStatus = new PlayerStatus();
+
+  // When set, position and buffering events only carry what changed since the last status sent.
+  // lastSentStatus is only valid while hasLastSentStatus; clearing it forces the next one to be full.
+  private boolean deltaStatus = false;
+  private final PlayerStatus lastSentStatus = new PlayerStatus();
+  // The values of player status events, refilled for each one (see reportPlayerStatus).
+  private final Map<String, Object> statusMap = new HashMap<>(16);
+  private final Map<String, Object> deltaStatusMap = new HashMap<>(16);
+  private boolean hasLastSentStatus = false;
+
   public RmxAudioPlayer(OnStatusReportListener statusListener) {
     this.statusListener = statusListener;
 
     getPlaylistManager().setId(PLAYLIST_ID);
     getPlaylistManager().setPlaybackStatusListener(this);
-    getPlaylistManager().setOnErrorListener(this);
-    getPlaylistManager().setMediaControlsListener(this);
+    getPlaylistManager().addErrorListener(this);
+    getPlaylistManager().addMediaControlsListener(this);
   }
 
   public PlaylistManager getPlaylistManager() {
@@ -62,6 +79,36 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
     getPlaylistManager().setResetStreamOnPause(getResetStreamOnPause());
   }
 
+  public boolean getBinaryStatus() {
+    return binaryStatus;
+  }
+
+  public void setBinaryStatus(boolean val) {
+    // Start over so that every track id gets defined again on the new stream, and the
+    // first status in the new encoding is complete, not a delta on the old one.
+    resetStatusStreams();
+    binaryStatus = val;
+  }
+
+  /*
+   * Forgets what Dart has been sent so far: track ids are defined again on the binary
+   * stream, and the next position or buffering status is complete rather than a delta.
+   * For when Dart starts over, e.g. after a hot restart.
+   */
+  public void resetStatusStreams() {
+    statusEncoder.reset();
+    hasLastSentStatus = false;
+  }
+
+  public boolean getDeltaStatus() {
+    return deltaStatus;
+  }
+
+  public void setDeltaStatus(boolean val) {
+    hasLastSentStatus = false;
+    deltaStatus = val;
+  }
+
   public float getVolume() {
     return (getVolumeLeft() + getVolumeRight()) / 2f;
   }
@@ -160,9 +207,7 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
       // Log.i(TAG, "onItemPlaybackEnded: ==> " + title + "," + trackId + " ==> next item: " + currTitle + "," + currTrackId);
 
       if (item != null) {
-          String trackId = item.getTrackId();
-          Map<?, ?> trackStatus = getPlayerStatus(item);
-          onStatus(RmxAudioStatusMessage.RMXSTATUS_COMPLETED, trackId, trackStatus);
+          reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_COMPLETED, item, null);
       }
 
       if (nextItem == null) { // if (!getPlaylistManager().isNextAvailable()) {
@@ -194,6 +239,8 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
       lastBufferPercent = 0;
       trackDuration = false;
       trackLoaded = false;
+      hasLastSentStatus = false;
+      getPlaylistManager().onCurrentItemChanged();
 
       onStatus(RmxAudioStatusMessage.RMXSTATUS_TRACK_CHANGED, trackId, info);
       return true;
@@ -207,8 +254,10 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
       // RETRIEVING is never sent.
 
       AudioTrack currentItem = getPlaylistManager().getCurrentItem();
-      Map<?, ?> trackStatus = getPlayerStatus(currentItem);
-      Log.i("AudioPlayerActiv/opsc", playbackState.toString() + ", " + trackStatus.toString() + ", " + currentItem);
+      PlayerStatus trackStatus = updatePlayerStatus(currentItem);
+      if (BuildConfig.DEBUG) {
+          Log.i("AudioPlayerActiv/opsc", playbackState.toString() + ", " + trackStatus + ", " + currentItem);
+      }
 
       switch (playbackState) {
           case STOPPED:
@@ -218,7 +267,7 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
           case RETRIEVING: // these are all loading states
           case PREPARING: {
             if (currentItem != null && currentItem.getTrackId() != null) {
-                  onStatus(RmxAudioStatusMessage.RMXSTATUS_LOADING, currentItem.getTrackId(), trackStatus);
+                  reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_LOADING, currentItem, trackStatus);
             }
             break;
           }
@@ -240,16 +289,19 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
                   // Can also check here that duration == 0, because that is what happens on the first PLAYING invokation.
                   // We'll leave this for now.
                   if (!trackLoaded) {
-                    onStatus(RmxAudioStatusMessage.RMXSTATUS_CANPLAY, currentItem.getTrackId(), trackStatus);
+                    reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_CANPLAY, currentItem, trackStatus);
+                    StartupMetrics.reached(StartupMetrics.Stage.CAN_PLAY);
                     trackLoaded = true;
                   }
-                  onStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYING, currentItem.getTrackId(), trackStatus);
+                  reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYING, currentItem, trackStatus);
+                  StartupMetrics.reached(StartupMetrics.Stage.PLAYING);
               }
               break;
           case PAUSED:
               if (currentItem != null && currentItem.getTrackId() != null) {
-                  onStatus(RmxAudioStatusMessage.RMXSTATUS_PAUSE, currentItem.getTrackId(), trackStatus);
+                  reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_PAUSE, currentItem, trackStatus);
               }
+              getPlaylistManager().onPlaybackPositionChanged();
               break;
           // we'll handle error in the listener. ExoMedia only raises this in the case of catastrophic player failure.
           case ERROR:
@@ -272,34 +324,36 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
         currentItem.setBufferPercent(progress.getBufferPercent());
         currentItem.setBufferPercentFloat(progress.getBufferPercentFloat());
 
-        Map<?, ?> trackStatus = getPlayerStatus(currentItem);
+        PlayerStatus trackStatus = updatePlayerStatus(currentItem);
 
         if (progress.getBufferPercent() != lastBufferPercent) {
             if (progress.getBufferPercent() >= 100f) {
                 // Unlike iOS this will get raised continuously.
                 // Extracting the source event from playlistcore would be really hard.
                 // The gate above should do the trick.
-                onStatus(RmxAudioStatusMessage.RMXSTATUS_LOADED, currentItem.getTrackId(), trackStatus);
+                reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_LOADED, currentItem, trackStatus);
+                getPlaylistManager().onCurrentItemBuffered();
             }
 
             if (!trackLoaded) {
-              onStatus(RmxAudioStatusMessage.RMXSTATUS_CANPLAY, currentItem.getTrackId(), trackStatus);
+              reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_CANPLAY, currentItem, trackStatus);
+              StartupMetrics.reached(StartupMetrics.Stage.CAN_PLAY);
               trackLoaded = true;
             }
 
             if (!trackDuration && progress.getDuration() > 0) {
-                onStatus(RmxAudioStatusMessage.RMXSTATUS_DURATION, currentItem.getTrackId(), trackStatus);
+                reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_DURATION, currentItem, trackStatus);
                 trackDuration = true;
             }
 
-            onStatus(RmxAudioStatusMessage.RMXSTATUS_BUFFERING, currentItem.getTrackId(), trackStatus);
+            reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_BUFFERING, currentItem, trackStatus);
             lastBufferPercent = progress.getBufferPercent();
         }
 
         // dont send on prepare, if null
         if (playbackState == PlaybackState.PLAYING || playbackState == PlaybackState.SEEKING
           || (playbackState == PlaybackState.PREPARING && progress.getDuration() == 0)) {
-            onStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYBACK_POSITION, currentItem.getTrackId(), trackStatus);
+            reportPlayerStatus(RmxAudioStatusMessage.RMXSTATUS_PLAYBACK_POSITION, currentItem, trackStatus);
         }
       }
 
@@ -307,63 +361,57 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
   }
 
   public Map<?, ?> getPlayerStatus(AudioTrack statusItem) {
-    // TODO: Make this its own object.
+    return updatePlayerStatus(statusItem).toMap();
+  }
+
+  /*
+   * Refreshes the shared PlayerStatus for the given item, or the current one if null.
+   * This doesn't allocate, so it is safe to call on every progress tick; the instance
+   * is overwritten by the next call, so copy it out (toMap) before holding on to it.
+   */
+  private PlayerStatus updatePlayerStatus(AudioTrack statusItem) {
     AudioTrack currentItem = statusItem != null ? statusItem : getPlaylistManager().getCurrentItem();
-    PlaybackState playbackState = getPlaylistManager().getCurrentPlaybackState();
-    MediaProgress progress = getPlaylistManager().getCurrentProgress();
-
-    String status = "unknown";
-    switch (playbackState) {
-      case STOPPED: { status = "stopped"; break; }
-      case ERROR: { status = "error"; break; }
-      case RETRIEVING:
-      case SEEKING: { status = "seeking"; break; }
-      case PREPARING: { status = "loading"; break; }
-      case PLAYING: { status = "playing"; break; }
-      case PAUSED: { status = "paused"; break; }
-      default:
-          break;
-    }
+    playerStatus.update(currentItem,
+            getPlaylistManager().getCurrentPlaybackState(),
+            getPlaylistManager().getCurrentPosition(),
+            getPlaylistManager().getCurrentProgress());
+    return playerStatus;
+  }
 
-    String trackId = "";
-    boolean isStream = false;
-    float bufferPercentFloat = 0;
-    int bufferPercent = 0;
-    long duration = 0;
-    long position = 0;
-
-    // The media players hold onto their current playback position between songs,
-    // despite my efforts to reset it. So we will just filter out this state.
-    if (progress != null) { // && !status.equals("loading")) {
-      position = progress.getPosition();
+  /*
+   * Raises a status event whose value is the player status of the given item,
+   * either as the getPlayerStatus map or, in binary mode, as an encoded record.
+   * trackStatus may be passed in when the caller already refreshed it for this item.
+   * In delta mode, position and buffering events for the track of the last status
+   * sent only carry the fields that changed (PlayerStatus.fillDeltaMap).
+   * The map handed to onStatus is refilled by the next event, see OnStatusReportListener.
+   */
+  public void reportPlayerStatus(RmxAudioStatusMessage what, AudioTrack item, PlayerStatus trackStatus) {
+    PlayerStatus status = trackStatus != null ? trackStatus : updatePlayerStatus(item);
+    if (binaryStatus) {
+      statusListener.onStatusRecord(statusEncoder.encode(what.getValue(), status));
+      return;
     }
 
-    // the position and duration vals are in milliseconds.
-    if (currentItem != null) {
-        isStream = currentItem.getIsStream();
-        trackId = currentItem.getTrackId();
-        bufferPercentFloat = currentItem.getBufferPercentFloat(); // progress.
-        bufferPercent = currentItem.getBufferPercent(); // progress.
-        duration = currentItem.getDuration(); // progress.
+    boolean delta = deltaStatus && hasLastSentStatus && isDeltaMessage(what)
+            && status.trackId != null && status.trackId.equals(lastSentStatus.trackId);
+    Map<String, Object> value;
+    if (delta) {
+      status.fillDeltaMap(deltaStatusMap, lastSentStatus);
+      value = deltaStatusMap;
+    } else {
+      status.fillMap(statusMap);
+      value = statusMap;
     }
+    onStatus(what, item.getTrackId(), value);
 
-    Map<String, Object> trackStatus = new HashMap<>();
-    try {
-        trackStatus.put("trackId", trackId);
-        trackStatus.put("isStream", isStream);
-        trackStatus.put("currentIndex", getPlaylistManager().getCurrentPosition());
-        trackStatus.put("status", status);
-        trackStatus.put("currentPosition", position / 1000.0);
-        trackStatus.put("duration", duration / 1000.0);
-        trackStatus.put("playbackPercent", duration > 0 ? (((double)position / duration) * 100.0) : 0);
-        trackStatus.put("bufferPercent", bufferPercent);
-        trackStatus.put("bufferStart", 0.0);
-        trackStatus.put("bufferEnd", (bufferPercentFloat * duration) / 1000.0);
-    } catch (Exception e) {
-        Log.e(TAG, "Error generating player status: " + e.toString());
-    }
+    lastSentStatus.copyFrom(status);
+    hasLastSentStatus = true;
+  }
 
-    return trackStatus;
+  private static boolean isDeltaMessage(RmxAudioStatusMessage what) {
+    return what == RmxAudioStatusMessage.RMXSTATUS_PLAYBACK_POSITION
+            || what == RmxAudioStatusMessage.RMXSTATUS_BUFFERING;
   }
 
   public void pause() {
@@ -375,6 +423,8 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
     Log.i(TAG, "Resumed, wiring up event listeners");
     getPlaylistManager();
     registerPlaylistListeners();
+    // Whoever is listening now may have missed the last full status.
+    hasLastSentStatus = false;
     //Makes sure to retrieve the current playback information
     updateCurrentPlaybackInformation();
   }
@@ -397,13 +447,13 @@ public class RmxAudioPlayer implements PlaybackStatusListener<AudioTrack>,
   }
 
   private void registerPlaylistListeners() {
-      getPlaylistManager().registerPlaylistListener(this);
-      getPlaylistManager().registerProgressListener(this);
+      getPlaylistManager().addPlaylistListener(this);
+      getPlaylistManager().addProgressListener(this);
   }
 
   private void removePlaylistListeners() {
-      getPlaylistManager().unRegisterPlaylistListener(this);
-      getPlaylistManager().unRegisterProgressListener(this);
+      getPlaylistManager().removePlaylistListener(this);
+      getPlaylistManager().removeProgressListener(this);
   }
 
   private void onError(RmxAudioErrorType errorCode, String trackId, String message) {
@@ -24,8 +24,15 @@ public enum RmxAudioStatusMessage {
   RMXSTATUS_TRACK_CHANGED(100),
   RMXSTATUS_PLAYLIST_COMPLETED(105),
   RMXSTATUS_ITEM_ADDED(110),
+  RMXSTATUS_ITEMS_ADDED(111),
   RMXSTATUS_ITEM_REMOVED(115),
+  RMXSTATUS_ITEMS_REMOVED(116),
   RMXSTATUS_PLAYLIST_CLEARED(120),
+  RMXSTATUS_PLAYLIST_RESTORED(125),
+
+  RMXSTATUS_DOWNLOAD_PROGRESS(130),
+  RMXSTATUS_DOWNLOAD_COMPLETED(135),
+  RMXSTATUS_DOWNLOAD_FAILED(140),
 
   RMXSTATUS_VIEWDISAPPEAR(200); // just for testing
 
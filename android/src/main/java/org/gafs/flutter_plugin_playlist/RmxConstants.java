@@ -9,13 +9,25 @@ public interface RmxConstants {
   // Playlist item management
   String INITIALIZE             = "initialize";
   String STATUS                 = "status";
+  String STATUS_BATCH           = "statusBatch";
+  String STATUS_CHANNEL         = "flutter_plugin_playlist/status";
+  String STATUS_FORMAT_BINARY   = "binary";
   String SET_OPTIONS            = "setOptions";
   String SET_PLAYLIST_ITEMS     = "setPlaylistItems";
   String ADD_PLAYLIST_ITEM      = "addItem";
   String ADD_PLAYLIST_ITEMS     = "addAllItems";
+  String APPEND_PLAYLIST_ITEMS  = "appendPlaylistItems";
   String REMOVE_PLAYLIST_ITEM   = "removeItem";
   String REMOVE_PLAYLIST_ITEMS  = "removeItems";
   String CLEAR_PLAYLIST_ITEMS   = "clearAllItems";
+  String SWITCH_PLAYLIST        = "switchPlaylist";
+  String REMOVE_PLAYLIST        = "removePlaylist";
+  String GET_PLAYLIST_NAMES     = "getPlaylistNames";
+
+  // Offline downloads
+  String DOWNLOAD_ITEMS         = "downloadItems";
+  String CANCEL_DOWNLOAD        = "cancelDownload";
+  String REMOVE_DOWNLOAD        = "removeDownload";
 
   // Playback
   String PLAY                   = "play";
@@ -36,6 +48,7 @@ public interface RmxConstants {
   String GET_PLAYBACK_POSITION  = "getPlaybackPosition";
   String GET_BUFFER_STATUS      = "getCurrentBuffer";
   String GET_QUEUE_POSITION     = "getQueuePosition";
+  String GET_METRICS            = "getMetrics";
 
   String RELEASE = "release";
 }
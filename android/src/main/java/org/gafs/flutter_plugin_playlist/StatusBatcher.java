@@ -0,0 +1,69 @@
+package org.gafs.flutter_plugin_playlist;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects status messages for a short window and hands them over as one
+ * ordered list, so a burst of events (e.g. BUFFERING, CANPLAY, DURATION and
+ * PLAYBACK_POSITION from a single progress tick) costs one platform channel
+ * crossing instead of one each.
+ *
+ * Batching is off until a window is set. Everything runs on the main looper,
+ * same as the channel itself.
+ */
+class StatusBatcher implements Runnable {
+  interface Sink {
+    void sendBatch(List<Map<String, Object>> batch);
+  }
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Sink sink;
+
+  private ArrayList<Map<String, Object>> pending = new ArrayList<>();
+  private long windowMs = 0;
+  private boolean scheduled = false;
+
+  StatusBatcher(Sink sink) {
+    this.sink = sink;
+  }
+
+  boolean isEnabled() {
+    return windowMs > 0;
+  }
+
+  void setWindow(long windowMs) {
+    // Whatever was queued under the old window goes out now.
+    flush();
+    this.windowMs = Math.max(0, windowMs);
+  }
+
+  void add(Map<String, Object> status) {
+    pending.add(status);
+    if (!scheduled) {
+      scheduled = true;
+      handler.postDelayed(this, windowMs);
+    }
+  }
+
+  void flush() {
+    handler.removeCallbacks(this);
+    scheduled = false;
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    List<Map<String, Object>> batch = pending;
+    pending = new ArrayList<>();
+    sink.sendBatch(batch);
+  }
+
+  @Override
+  public void run() {
+    flush();
+  }
+}
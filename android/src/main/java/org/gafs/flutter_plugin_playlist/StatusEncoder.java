@@ -0,0 +1,122 @@
+package org.gafs.flutter_plugin_playlist;
+
+import com.devbrackets.android.playlistcore.data.PlaybackState;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+/**
+ * Encodes player status events as fixed-layout binary records, the compact
+ * alternative to PlayerStatus.toMap(). Selected with
+ * setOptions({ statusFormat: "binary" }) and sent over the STATUS_CHANNEL.
+ *
+ * A message is a sequence of records, all big-endian:
+ *
+ *   RECORD_TRACK_ID (1): byte type, int32 handle, int32 length, UTF-8 trackId
+ *   RECORD_STATUS   (2): byte type, int32 msgType, int32 trackHandle (-1 for none),
+ *                        byte state, byte isStream, int32 currentIndex,
+ *                        int64 position (ms), int64 duration (ms),
+ *                        int32 bufferPercent, float32 bufferPercentFloat
+ *
+ * Track ids are interned: the first time an id is used, its RECORD_TRACK_ID
+ * is written ahead of the status record and from then on only the handle is sent.
+ */
+class StatusEncoder {
+  static final byte RECORD_TRACK_ID = 1;
+  static final byte RECORD_STATUS = 2;
+
+  static final byte STATE_UNKNOWN = 0;
+  static final byte STATE_STOPPED = 1;
+  static final byte STATE_ERROR = 2;
+  static final byte STATE_SEEKING = 3;
+  static final byte STATE_LOADING = 4;
+  static final byte STATE_PLAYING = 5;
+  static final byte STATE_PAUSED = 6;
+
+  private static final int STATUS_RECORD_SIZE = 1 + 4 + 4 + 1 + 1 + 4 + 8 + 8 + 4 + 4;
+  private static final int TRACK_ID_HEADER_SIZE = 1 + 4 + 4;
+
+  // Past this many ids the table is dropped and ids are simply defined again,
+  // so a very long session doesn't pin every trackId it ever played.
+  private static final int MAX_INTERNED_IDS = 4096;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final HashMap<String, Integer> trackHandles = new HashMap<>();
+
+  // The messenger copies the payload when it is sent, so one direct buffer is reused.
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+
+  void reset() {
+    trackHandles.clear();
+  }
+
+  ByteBuffer encode(int msgType, PlayerStatus status) {
+    buffer.clear();
+
+    int handle = -1;
+    if (status.trackId != null) {
+      handle = internTrackId(status.trackId);
+    }
+
+    ensureCapacity(STATUS_RECORD_SIZE);
+    buffer.put(RECORD_STATUS);
+    buffer.putInt(msgType);
+    buffer.putInt(handle);
+    buffer.put(status.state);
+    buffer.put((byte) (status.isStream ? 1 : 0));
+    buffer.putInt(status.currentIndex);
+    buffer.putLong(status.position);
+    buffer.putLong(status.duration);
+    buffer.putInt(status.bufferPercent);
+    buffer.putFloat(status.bufferPercentFloat);
+
+    return buffer;
+  }
+
+  static byte stateCode(PlaybackState playbackState) {
+    switch (playbackState) {
+      case STOPPED: return STATE_STOPPED;
+      case ERROR: return STATE_ERROR;
+      case RETRIEVING:
+      case SEEKING: return STATE_SEEKING;
+      case PREPARING: return STATE_LOADING;
+      case PLAYING: return STATE_PLAYING;
+      case PAUSED: return STATE_PAUSED;
+      default: return STATE_UNKNOWN;
+    }
+  }
+
+  private int internTrackId(String trackId) {
+    Integer handle = trackHandles.get(trackId);
+    if (handle != null) {
+      return handle;
+    }
+
+    if (trackHandles.size() >= MAX_INTERNED_IDS) {
+      trackHandles.clear();
+    }
+    handle = trackHandles.size();
+    trackHandles.put(trackId, handle);
+
+    byte[] bytes = trackId.getBytes(UTF_8);
+    ensureCapacity(TRACK_ID_HEADER_SIZE + bytes.length);
+    buffer.put(RECORD_TRACK_ID);
+    buffer.putInt(handle);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+
+    return handle;
+  }
+
+  private void ensureCapacity(int bytes) {
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+    ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+    buffer.flip();
+    larger.put(buffer);
+    buffer = larger;
+  }
+}
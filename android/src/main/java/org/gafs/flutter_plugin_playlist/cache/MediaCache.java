@@ -0,0 +1,90 @@
+package org.gafs.flutter_plugin_playlist.cache;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.NoOpCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+
+import java.io.File;
+
+/**
+ * Holds the one {@link SimpleCache} the process uses for media.
+ * <p>
+ * Two SimpleCache instances on the same directory are not allowed, and creating
+ * one scans the whole directory, so it is created lazily on first use and then
+ * shared by every data source factory for the life of the process.
+ * <p>
+ * It is never released: the prefetcher and the players' loader threads can still be
+ * reading from it after a stop, and a SimpleCache fails once released. Configuration
+ * therefore only applies when the cache is created, i.e. before the first track is loaded.
+ */
+public final class MediaCache {
+    private static final String TAG = "MediaCache";
+
+    public static final String EVICTOR_LRU = "lru";
+    public static final String EVICTOR_NONE = "none";
+
+    private static final long DEFAULT_MAX_BYTES = 100 * 1024 * 1024;
+    private static final String DEFAULT_DIRECTORY = "flutter_plugin_playlist";
+
+    private static Context context;
+    private static File directory;
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    private static String evictor = EVICTOR_LRU;
+
+    private static SimpleCache cache;
+
+    private MediaCache() {
+    }
+
+    public static synchronized void init(Context context) {
+        MediaCache.context = context.getApplicationContext();
+    }
+
+    /*
+     * directory may be null for the default (a folder inside the app's cache dir),
+     * evictor is one of EVICTOR_LRU or EVICTOR_NONE.
+     */
+    public static synchronized void configure(File directory, long maxBytes, String evictor) {
+        MediaCache.directory = directory;
+        MediaCache.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+        MediaCache.evictor = evictor != null ? evictor : EVICTOR_LRU;
+
+        if (cache != null) {
+            Log.i(TAG, "Cache already in use, new settings apply after a restart");
+        }
+    }
+
+    public static synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public static synchronized String getEvictor() {
+        return evictor;
+    }
+
+    public static synchronized File getDirectory() {
+        if (directory != null) {
+            return directory;
+        }
+        return new File(context.getCacheDir(), DEFAULT_DIRECTORY);
+    }
+
+    public static synchronized Cache getCache() {
+        if (cache == null) {
+            cache = new SimpleCache(getDirectory(), newEvictor());
+        }
+        return cache;
+    }
+
+    private static CacheEvictor newEvictor() {
+        if (EVICTOR_NONE.equals(evictor)) {
+            return new NoOpCacheEvictor();
+        }
+        return new LeastRecentlyUsedCacheEvictor(maxBytes);
+    }
+}
@@ -0,0 +1,172 @@
+package org.gafs.flutter_plugin_playlist.cache;
+
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+
+import org.gafs.flutter_plugin_playlist.network.MediaHttpClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the start of the upcoming tracks into the {@link MediaCache}, so that a
+ * skip or the end of the current track doesn't have to wait on a cold network fetch.
+ * <p>
+ * The PlaylistManager hands over the urls of the next tracks whenever the queue or
+ * the current item changes. Work only starts once the current item is fully buffered,
+ * runs one url at a time on a single background-priority thread, and any plan change
+ * cancels whatever is in flight.
+ */
+public class MediaPrefetcher {
+    private static final String TAG = "MediaPrefetcher";
+
+    private static final String USER_AGENT = "flutter_plugin_playlist";
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // Keeps us from fetching the same urls again when the plan is recomputed.
+    private static final int MAX_REMEMBERED = 256;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final LinkedHashSet<String> prefetched = new LinkedHashSet<>();
+    private List<String> plan = new ArrayList<>();
+
+    private int depth = 0;
+    private long bytesPerItem = 512 * 1024;
+    private boolean currentItemBuffered = false;
+
+    // Bumped on every change; a running job stops as soon as it sees a newer value.
+    private volatile int generation = 0;
+
+    public synchronized void configure(int depth, long bytesPerItem) {
+        this.depth = Math.max(0, depth);
+        this.bytesPerItem = Math.max(0, bytesPerItem);
+        if (this.depth == 0) {
+            cancel();
+        }
+    }
+
+    public synchronized int getDepth() {
+        return depth;
+    }
+
+    public synchronized long getBytesPerItem() {
+        return bytesPerItem;
+    }
+
+    public synchronized void plan(List<String> urls) {
+        if (urls.equals(plan)) {
+            return;
+        }
+        plan = urls;
+        restart();
+    }
+
+    /*
+     * Nothing is fetched while the current item is still buffering,
+     * so prefetching never competes with it for bandwidth.
+     */
+    public synchronized void setCurrentItemBuffered(boolean buffered) {
+        if (buffered == currentItemBuffered) {
+            return;
+        }
+        currentItemBuffered = buffered;
+        restart();
+    }
+
+    public synchronized void cancel() {
+        generation++;
+        plan = new ArrayList<>();
+    }
+
+    private void restart() {
+        final int jobGeneration = ++generation;
+        if (!currentItemBuffered || depth == 0 || bytesPerItem == 0) {
+            return;
+        }
+
+        final ArrayList<String> urls = new ArrayList<>();
+        for (String url : plan) {
+            if (!prefetched.contains(url)) {
+                urls.add(url);
+            }
+        }
+        if (urls.isEmpty()) {
+            return;
+        }
+
+        final long length = bytesPerItem;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                for (String url : urls) {
+                    if (jobGeneration != generation) {
+                        return;
+                    }
+                    if (prefetch(url, length, jobGeneration)) {
+                        remember(url);
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized void remember(String url) {
+        prefetched.add(url);
+        if (prefetched.size() > MAX_REMEMBERED) {
+            prefetched.remove(prefetched.iterator().next());
+        }
+    }
+
+    // Reading through a CacheDataSource is what writes the data into the cache.
+    private boolean prefetch(String url, long length, int jobGeneration) {
+        CacheDataSource dataSource = new CacheDataSource(
+                MediaCache.getCache(),
+                new OkHttpDataSourceFactory(MediaHttpClient.get(), USER_AGENT, null).createDataSource(),
+                CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try {
+            dataSource.open(new DataSpec(Uri.parse(url), 0, length, null));
+            long total = 0;
+            while (total < length) {
+                if (jobGeneration != generation) {
+                    return false;
+                }
+                int read = dataSource.read(buffer, 0, (int) Math.min(buffer.length, length - total));
+                if (read == C.RESULT_END_OF_INPUT) {
+                    break;
+                }
+                total += read;
+            }
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Error prefetching " + url + ": " + e.getMessage());
+            return false;
+        } finally {
+            try {
+                dataSource.close();
+            } catch (Exception e) {
+                // Purposefully left blank
+            }
+        }
+    }
+}
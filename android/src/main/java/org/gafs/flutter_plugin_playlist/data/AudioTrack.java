@@ -3,8 +3,10 @@ package org.gafs.flutter_plugin_playlist.data;
 import com.devbrackets.android.playlistcore.annotation.SupportedMediaType;
 import com.devbrackets.android.playlistcore.api.PlaylistItem;
 
+import org.gafs.flutter_plugin_playlist.download.MediaDownloadManager;
 import org.gafs.flutter_plugin_playlist.manager.PlaylistManager;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,7 +23,24 @@ public class AudioTrack implements PlaylistItem {
         String getAsset(String asset);
     }
 
-    private final Map<?, ?> config;
+    // Everything is parsed once in the constructor; the codec map is not kept.
+    // Roughly 40 bytes of fields per track on top of the strings. Artists, albums and
+    // artwork urls repeat across tracks, so they are interned and shared; the trackId is
+    // unique per track, so interning it would only grow the string table.
+    private final String trackId;
+    private final long id;
+    private final boolean isStream;
+    private final String mediaUrl;
+    private final String thumbnailUrl;
+    private final String title;
+    private final String album;
+    private final String artist;
+
+    // Built on first use, see toDict.
+    private Map<?, ?> dict;
+    // Hashed on first use, see getDownloadFileName.
+    private String downloadFileName;
+
     private float bufferPercentFloat = 0f;
     private int bufferPercent = 0;
     private long duration = 0;
@@ -30,11 +49,74 @@ public class AudioTrack implements PlaylistItem {
     // We don't really have the option in Java; instead we will check the items afterwards
     // and just not add them to the list if they have bad data.
     public AudioTrack(Map<?, ?> config) {
-        this.config = config;
+        String trackId = getOption(config, "trackId", "");
+        this.trackId = trackId.equals("") ? null : trackId;
+        this.id = getIdForTrackId(this.trackId);
+        this.isStream = getOption(config, "isStream", false);
+        this.mediaUrl = resolveAsset(getOption(config, "assetUrl", ""));
+
+        // we should have a good default here.
+        String albumArt = getOption(config, "albumArt", "");
+        this.thumbnailUrl = albumArt.equals("") ? null : resolveAsset(albumArt).intern();
+
+        this.title = getOption(config, "title", "");
+        this.album = getOption(config, "album", "").intern();
+        this.artist = getOption(config, "artist", "").intern();
+    }
+
+    // Recreates a track from values taken from another AudioTrack's getters (e.g. a
+    // stored queue), so urls are used as they are instead of being resolved again.
+    public AudioTrack(String trackId, boolean isStream, String mediaUrl, String thumbnailUrl,
+                      String title, String album, String artist) {
+        this.trackId = trackId;
+        this.id = getIdForTrackId(this.trackId);
+        this.isStream = isStream;
+        this.mediaUrl = mediaUrl != null ? mediaUrl : "";
+        this.thumbnailUrl = thumbnailUrl != null ? thumbnailUrl.intern() : null;
+        this.title = title != null ? title : "";
+        this.album = album != null ? album.intern() : "";
+        this.artist = artist != null ? artist.intern() : "";
+    }
+
+    // 64-bit FNV-1a over the trackId. String.hashCode() only has 32 bits and
+    // collides easily enough on large playlists; this is stable across runs
+    // and only computed once per track.
+    public static long getIdForTrackId(String trackId) {
+        if (trackId == null) { return 0; }
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < trackId.length(); i++) {
+            hash ^= trackId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> T getOption(Map<?, ?> config, String key, T defaultValue) {
+        Object value = config != null ? config.get(key) : null;
+
+        return value != null ? (T) value : defaultValue;
+    }
+
+    private static String resolveAsset(String url) {
+        if (url.startsWith("asset://")) {
+            return assetResolver.getAsset(url.substring(8));
+        }
+        return url;
+    }
+
+    // The metadata never changes after construction, so the dictionary is built
+    // once and the same read-only map is handed to every status message.
     public Map<?, ?> toDict() {
-        Map<Object, Object> info = new HashMap<>();
+        if (dict == null) {
+            dict = Collections.unmodifiableMap(buildDict());
+        }
+        return dict;
+    }
+
+    private Map<Object, Object> buildDict() {
+        Map<Object, Object> info = new HashMap<>(12);
 
         info.put("trackId", getTrackId());
         info.put("isStream", getIsStream());
@@ -53,35 +135,38 @@ public class AudioTrack implements PlaylistItem {
         // ListPlaylistManager.getPositionForItem uses item.id when PlaylistManager.setCurrentItem(id)
         // is called, basically finding the index of that ID.
         // Alternatively, simply use PlaylistManager.setCurrentPosition which uses index directly.
-        // Probably easier in almost all cases.
-        if (getTrackId() == null) { return 0; }
-        return getTrackId().hashCode();
-    }
-
-    private <T> T getOption(String key, T defaultValue) {
-        Object value = this.config.get(key);
-
-        return value != null ? (T) value : defaultValue;
+        // Probably easier in almost all cases, and PlaylistManager.setCurrentTrackId does that.
+        return id;
     }
 
     public boolean getIsStream() {
-        return getOption("isStream", false);
+        return isStream;
     }
 
     public String getTrackId() {
-        String trackId = getOption("trackId", "");
-        if (trackId.equals("")) { return null; }
         return trackId;
     }
 
+    // True once MediaDownloadManager has stored the whole track; AudioApi then plays the local file.
     @Override
     public boolean getDownloaded() {
-        return false; // Would really like to set this to true once the cache has it...
+        MediaDownloadManager downloads = MediaDownloadManager.getInstance();
+        return downloads != null && downloads.isDownloaded(this);
     }
 
     @Override
     public String getDownloadedMediaUri() {
-        return null; // ... at which point we can return a value here.
+        MediaDownloadManager downloads = MediaDownloadManager.getInstance();
+        return downloads != null ? downloads.getDownloadedMediaUri(this) : null;
+    }
+
+    // The name MediaDownloadManager stores the track under. It's a SHA-256 of the trackId,
+    // and getDownloaded() is checked for every track the prefetcher looks at, so it's kept.
+    public String getDownloadFileName() {
+        if (downloadFileName == null && trackId != null) {
+            downloadFileName = MediaDownloadManager.fileName(trackId);
+        }
+        return downloadFileName;
     }
 
     @Override
@@ -92,26 +177,12 @@ public class AudioTrack implements PlaylistItem {
 
     @Override
     public String getMediaUrl() {
-        String mediaUrl = getOption("assetUrl", "");
-        
-        if (mediaUrl.startsWith("asset://")) {
-            return assetResolver.getAsset(mediaUrl.substring(8));
-        }
-
         return mediaUrl;
     }
 
     @Override
     public String getThumbnailUrl() {
-        String albumArt = getOption("albumArt", "");
-
-        if (albumArt.equals("")) { return null; } // we should have a good default here.
-
-        if (albumArt.startsWith("asset://")) {
-            return assetResolver.getAsset(albumArt.substring(8));
-        }
-
-        return albumArt;
+        return thumbnailUrl;
     }
 
     @Override
@@ -121,17 +192,17 @@ public class AudioTrack implements PlaylistItem {
 
     @Override
     public String getTitle() {
-        return getOption("title", "");
+        return title;
     }
 
     @Override
     public String getAlbum() {
-        return getOption("album", "");
+        return album;
     }
 
     @Override
     public String getArtist() {
-        return getOption("artist", "");
+        return artist;
     }
 
     // Since it seems ExoPlayer resets the buffering value when you seek,
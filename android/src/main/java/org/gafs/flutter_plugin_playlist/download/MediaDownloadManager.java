@@ -0,0 +1,458 @@
+package org.gafs.flutter_plugin_playlist.download;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+import org.gafs.flutter_plugin_playlist.network.MediaHttpClient;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Stores whole tracks in the app's files dir, outside the LRU media cache, so
+ * they can be played without any network I/O. Once a track is complete,
+ * {@link AudioTrack#getDownloaded()} returns true and AudioApi plays the local file.
+ * <p>
+ * Downloads go to a ".part" file first and are resumed with a Range request
+ * when restarted after a cancel or failure. At most {@link #getConcurrency()}
+ * run at the same time, and never more than one per track. Listener callbacks
+ * are delivered on the main looper.
+ */
+public class MediaDownloadManager {
+    private static final String TAG = "MediaDownloadManager";
+
+    private static final String DIRECTORY = "flutter_plugin_playlist_downloads";
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 500;
+    // Hex SHA-256 of the track id, see fileName.
+    private static final int FILE_NAME_LENGTH = 64;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public interface Listener {
+        void onDownloadProgress(String trackId, long downloadedBytes, long totalBytes);
+        void onDownloadCompleted(String trackId, String mediaUri);
+        void onDownloadFailed(String trackId, String message);
+    }
+
+    private static MediaDownloadManager instance;
+
+    private final File directory;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // File names (see fileName) of the complete downloads, so getDownloaded() never touches the disk.
+    private final HashSet<String> completed = new HashSet<>();
+    // Every task that hasn't returned yet, including cancelled ones that may still be writing.
+    private final HashMap<String, DownloadTask> active = new HashMap<>();
+
+    private final ThreadPoolExecutor executor;
+    private int concurrency = 2;
+    private volatile Listener listener;
+
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new MediaDownloadManager(context.getApplicationContext());
+        }
+    }
+
+    public static MediaDownloadManager getInstance() {
+        return instance;
+    }
+
+    private MediaDownloadManager(Context context) {
+        directory = new File(context.getFilesDir(), DIRECTORY);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Unable to create download directory " + directory);
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                String base = name.endsWith(PART_SUFFIX) ? name.substring(0, name.length() - PART_SUFFIX.length()) : name;
+                if (base.length() != FILE_NAME_LENGTH) {
+                    // Stored under an earlier naming (a 64-bit hash two track ids could share),
+                    // which can't be mapped back to a track.
+                    if (!file.delete()) {
+                        Log.w(TAG, "Unable to delete " + file);
+                    }
+                } else if (base == name) {
+                    completed.add(name);
+                }
+            }
+        }
+
+        executor = newExecutor(concurrency);
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /*
+     * The pool is resized rather than replaced. When lowering the limit, downloads already
+     * running finish, but no queued one starts until fewer than the new limit are running.
+     */
+    public synchronized void setConcurrency(int concurrency) {
+        concurrency = Math.max(1, concurrency);
+        if (concurrency == this.concurrency) {
+            return;
+        }
+        // The core size may never be above the maximum, so the order depends on the direction.
+        if (concurrency > this.concurrency) {
+            executor.setMaximumPoolSize(concurrency);
+            executor.setCorePoolSize(concurrency);
+        } else {
+            executor.setCorePoolSize(concurrency);
+            executor.setMaximumPoolSize(concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    public boolean isDownloaded(String trackId) {
+        return trackId != null && isStored(fileName(trackId));
+    }
+
+    /*
+     * Same as isDownloaded(track.getTrackId()), but with the file name the track keeps,
+     * so checking the same track again doesn't hash its id again.
+     */
+    public boolean isDownloaded(AudioTrack track) {
+        return track.getTrackId() != null && isStored(track.getDownloadFileName());
+    }
+
+    public String getDownloadedMediaUri(String trackId) {
+        return trackId != null ? storedUri(fileName(trackId)) : null;
+    }
+
+    public String getDownloadedMediaUri(AudioTrack track) {
+        return track.getTrackId() != null ? storedUri(track.getDownloadFileName()) : null;
+    }
+
+    private synchronized boolean isStored(String name) {
+        return completed.contains(name);
+    }
+
+    private String storedUri(String name) {
+        if (!isStored(name)) {
+            return null;
+        }
+        return Uri.fromFile(new File(directory, name)).toString();
+    }
+
+    public synchronized boolean isDownloading(String trackId) {
+        DownloadTask task = active.get(trackId);
+        return task != null && (!task.cancelled || task.restart != null);
+    }
+
+    /*
+     * Returns false if the track is already stored, already downloading, or has no http(s) url.
+     */
+    public synchronized boolean download(AudioTrack track) {
+        String trackId = track.getTrackId();
+        String url = track.getMediaUrl();
+        if (trackId == null || isDownloading(trackId) || isDownloaded(track)) {
+            return false;
+        }
+        if (!url.startsWith("http://") && !url.startsWith("https://")) {
+            return false;
+        }
+
+        DownloadTask task = new DownloadTask(trackId, url, track.getDownloadFileName());
+        DownloadTask cancelled = active.get(trackId);
+        if (cancelled != null) {
+            // It may still be writing the .part file; resume once it has stopped.
+            cancelled.restart = task;
+        } else {
+            start(task);
+        }
+        return true;
+    }
+
+    /*
+     * Stops the download but keeps what was received, so download() resumes from there.
+     */
+    public synchronized boolean cancel(String trackId) {
+        if (!isDownloading(trackId)) {
+            return false;
+        }
+        DownloadTask task = active.get(trackId);
+        task.restart = null;
+        task.cancel();
+        return true;
+    }
+
+    /*
+     * Cancels the download if it is running and deletes anything stored for the track.
+     */
+    public synchronized boolean remove(String trackId) {
+        cancel(trackId);
+        String name = fileName(trackId);
+        completed.remove(name);
+
+        DownloadTask task = active.get(trackId);
+        if (task != null) {
+            // Deleting now would race with its last write or rename, so it cleans up after itself.
+            task.discard = true;
+            return true;
+        }
+        return deleteFiles(name);
+    }
+
+    /*
+     * The hex SHA-256 of the track id. Unlike a shorter hash, two track ids can't end
+     * up sharing a file, and unlike the id itself it is always a valid file name.
+     * AudioTrack keeps its own, see AudioTrack.getDownloadFileName.
+     */
+    public static String fileName(String trackId) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(trackId.getBytes(UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java and Android runtime is required to provide it.
+            throw new IllegalStateException(e);
+        }
+        StringBuilder name = new StringBuilder(FILE_NAME_LENGTH);
+        for (byte value : digest) {
+            name.append(Character.forDigit((value >> 4) & 0xf, 16));
+            name.append(Character.forDigit(value & 0xf, 16));
+        }
+        return name.toString();
+    }
+
+    private boolean deleteFiles(String name) {
+        boolean deleted = new File(directory, name).delete();
+        return new File(directory, name + PART_SUFFIX).delete() || deleted;
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private void start(DownloadTask task) {
+        active.put(task.trackId, task);
+        executor.execute(task);
+    }
+
+    /*
+     * Called once the task has stopped touching its files. Returns whether the track
+     * is now stored.
+     */
+    private synchronized boolean onTaskFinished(DownloadTask task, boolean complete) {
+        active.remove(task.trackId);
+        if (task.discard) {
+            deleteFiles(task.fileName);
+            complete = false;
+        } else if (complete) {
+            completed.add(task.fileName);
+        }
+
+        if (task.restart != null && !completed.contains(task.fileName)) {
+            start(task.restart);
+        }
+        return complete;
+    }
+
+    private void postProgress(final String trackId, final long downloaded, final long total) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Listener current = listener;
+                if (current != null) {
+                    current.onDownloadProgress(trackId, downloaded, total);
+                }
+            }
+        });
+    }
+
+    private void postCompleted(final String trackId) {
+        final String uri = getDownloadedMediaUri(trackId);
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Listener current = listener;
+                if (current != null) {
+                    current.onDownloadCompleted(trackId, uri);
+                }
+            }
+        });
+    }
+
+    private void postFailed(final String trackId, final String message) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Listener current = listener;
+                if (current != null) {
+                    current.onDownloadFailed(trackId, message);
+                }
+            }
+        });
+    }
+
+    private class DownloadTask implements Runnable {
+        final String trackId;
+        final String url;
+        final String fileName;
+
+        private volatile boolean cancelled = false;
+        private volatile Call call;
+
+        // Both guarded by the manager: the task to start once this cancelled one returns,
+        // and whether remove() was called while it was running.
+        DownloadTask restart;
+        boolean discard;
+
+        DownloadTask(String trackId, String url, String fileName) {
+            this.trackId = trackId;
+            this.url = url;
+            this.fileName = fileName;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Call current = call;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            boolean complete = false;
+            try {
+                complete = transfer();
+            } catch (IOException e) {
+                if (!cancelled) {
+                    Log.w(TAG, "Download of " + trackId + " failed: " + e.getMessage());
+                    postFailed(trackId, e.getMessage());
+                }
+            } finally {
+                complete = onTaskFinished(this, complete);
+            }
+            if (complete) {
+                postCompleted(trackId);
+            }
+        }
+
+        private boolean transfer() throws IOException {
+            File part = new File(directory, fileName + PART_SUFFIX);
+            long existing = part.exists() ? part.length() : 0;
+
+            Request.Builder request = new Request.Builder().url(url);
+            if (existing > 0) {
+                request.header("Range", "bytes=" + existing + "-");
+            }
+
+            call = MediaHttpClient.get().newCall(request.build());
+            if (cancelled) {
+                return false;
+            }
+
+            Response response = call.execute();
+            InputStream input = null;
+            FileOutputStream output = null;
+            try {
+                if (response.code() == 416 && existing > 0) {
+                    // We already have everything the server has.
+                    return finish(part);
+                }
+                if (!response.isSuccessful()) {
+                    throw new IOException("HTTP " + response.code());
+                }
+
+                // A plain 200 means the server ignored the range, so start over.
+                boolean append = response.code() == 206;
+                if (!append) {
+                    existing = 0;
+                }
+
+                ResponseBody body = response.body();
+                if (body == null) {
+                    throw new IOException("Empty response");
+                }
+                long total = body.contentLength() >= 0 ? existing + body.contentLength() : -1;
+
+                input = body.byteStream();
+                output = new FileOutputStream(part, append);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long downloaded = existing;
+                long lastProgress = 0;
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    if (cancelled) {
+                        return false;
+                    }
+                    output.write(buffer, 0, read);
+                    downloaded += read;
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastProgress >= PROGRESS_INTERVAL_MS) {
+                        lastProgress = now;
+                        postProgress(trackId, downloaded, total);
+                    }
+                }
+                output.getFD().sync();
+                return !cancelled && finish(part);
+            } finally {
+                closeQuietly(output);
+                closeQuietly(input);
+                response.close();
+            }
+        }
+
+        private boolean finish(File part) throws IOException {
+            File target = new File(directory, fileName);
+            if (!part.renameTo(target)) {
+                throw new IOException("Unable to move " + part + " to " + target);
+            }
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Purposefully left blank
+        }
+    }
+}
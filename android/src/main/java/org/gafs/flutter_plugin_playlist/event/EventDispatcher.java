@@ -0,0 +1,128 @@
+package org.gafs.flutter_plugin_playlist.event;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * The listeners for one kind of event, and delivery of that event to them.
+ * <p>
+ * Listeners are held weakly, so registering doesn't keep a plugin instance (or
+ * whatever else it holds on to) alive, and the ones that have been collected are
+ * dropped the next time the list is dispatched to or changed.
+ * <p>
+ * The list is copied on every change and published through a volatile field, so
+ * dispatching takes no lock and allocates nothing: it walks whichever array was
+ * current when it started. That suits these listeners, which are added a handful
+ * of times per session but called on every progress tick. A listener added or
+ * removed during a dispatch is only seen by the next one.
+ */
+public final class EventDispatcher<L> {
+    /*
+     * Delivers an event to one listener. Implementations are meant to be shared
+     * constants, so that dispatching allocates nothing; whatever varies goes in the argument.
+     */
+    public interface Event<L, A> {
+        // Returning true consumes the event, the listeners after this one don't get it.
+        boolean dispatch(L listener, A argument);
+    }
+
+    private static final WeakReference<?>[] NONE = new WeakReference<?>[0];
+
+    // Never modified once published, only replaced (under the lock).
+    private volatile WeakReference<?>[] listeners = NONE;
+
+    /*
+     * Adding a listener that is already there does nothing.
+     */
+    public synchronized void add(L listener) {
+        if (listener == null || contains(listener)) {
+            return;
+        }
+
+        WeakReference<?>[] current = without(listeners, null);
+        WeakReference<?>[] next = new WeakReference<?>[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = new WeakReference<>(listener);
+        listeners = next;
+    }
+
+    public synchronized void remove(L listener) {
+        listeners = without(listeners, listener);
+    }
+
+    public boolean contains(L listener) {
+        for (WeakReference<?> reference : listeners) {
+            if (reference.get() == listener) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        for (WeakReference<?> reference : listeners) {
+            if (reference.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Hands the event to each listener in the order they were added, until one
+     * consumes it. Returns whether one did.
+     */
+    @SuppressWarnings("unchecked")
+    public <A> boolean dispatch(Event<? super L, A> event, A argument) {
+        WeakReference<?>[] current = listeners;
+        boolean consumed = false;
+        boolean collected = false;
+
+        for (WeakReference<?> reference : current) {
+            L listener = (L) reference.get();
+            if (listener == null) {
+                collected = true;
+            } else if (event.dispatch(listener, argument)) {
+                consumed = true;
+                break;
+            }
+        }
+
+        if (collected) {
+            prune();
+        }
+        return consumed;
+    }
+
+    private synchronized void prune() {
+        listeners = without(listeners, null);
+    }
+
+    /*
+     * A copy of the array without the collected references and without the given
+     * listener (if not null), or the array itself when there is nothing to drop.
+     */
+    private static WeakReference<?>[] without(WeakReference<?>[] references, Object listener) {
+        int kept = 0;
+        for (WeakReference<?> reference : references) {
+            Object referent = reference.get();
+            if (referent != null && referent != listener) {
+                kept++;
+            }
+        }
+        if (kept == references.length) {
+            return references;
+        }
+
+        WeakReference<?>[] result = kept == 0 ? NONE : new WeakReference<?>[kept];
+        int index = 0;
+        for (WeakReference<?> reference : references) {
+            Object referent = reference.get();
+            if (referent != null && referent != listener && index < kept) {
+                result[index++] = reference;
+            }
+        }
+        // More may have been collected since they were counted.
+        return index == kept ? result : Arrays.copyOf(result, index);
+    }
+}
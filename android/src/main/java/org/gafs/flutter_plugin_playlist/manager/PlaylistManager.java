@@ -1,8 +1,11 @@
 package org.gafs.flutter_plugin_playlist.manager;
 
+import java.io.File;
 import java.lang.ref.WeakReference;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 
 import android.app.Activity;
 import android.app.Application;
@@ -13,27 +16,34 @@ import com.devbrackets.android.exomedia.ExoMedia;
 import com.devbrackets.android.exomedia.core.api.VideoViewApi;
 import com.devbrackets.android.playlistcore.api.PlaylistItem;
 import com.devbrackets.android.playlistcore.data.MediaProgress;
+import com.devbrackets.android.playlistcore.data.PlaybackState;
 import com.devbrackets.android.playlistcore.manager.ListPlaylistManager;
 import com.devbrackets.android.playlistcore.manager.BasePlaylistManager;
 import com.devbrackets.android.playlistcore.api.MediaPlayerApi;
+import com.devbrackets.android.playlistcore.listener.PlaylistListener;
+import com.devbrackets.android.playlistcore.listener.ProgressListener;
 import com.devbrackets.android.exomedia.listener.OnErrorListener;
 import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
 import com.google.android.exoplayer2.upstream.TransferListener;
-import com.google.android.exoplayer2.upstream.cache.Cache;
 import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
 import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
-import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
-import com.google.android.exoplayer2.upstream.cache.SimpleCache;
 
 import org.gafs.flutter_plugin_playlist.PlaylistItemOptions;
+import org.gafs.flutter_plugin_playlist.RmxConstants;
 import org.gafs.flutter_plugin_playlist.TrackRemovalItem;
+import org.gafs.flutter_plugin_playlist.cache.MediaCache;
+import org.gafs.flutter_plugin_playlist.cache.MediaPrefetcher;
 import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+import org.gafs.flutter_plugin_playlist.download.MediaDownloadManager;
+import org.gafs.flutter_plugin_playlist.event.EventDispatcher;
+import org.gafs.flutter_plugin_playlist.metrics.StartupMetrics;
+import org.gafs.flutter_plugin_playlist.network.MediaHttpClient;
 import org.gafs.flutter_plugin_playlist.playlist.AudioApi;
+import org.gafs.flutter_plugin_playlist.playlist.AudioPlaylistHandler;
 import org.gafs.flutter_plugin_playlist.service.MediaService;
 
-import okhttp3.OkHttpClient;
-
 /**
  * A PlaylistManager that extends the {@link ListPlaylistManager} for use with the
  * {@link MediaService} which extends {@link com.devbrackets.android.playlistcore.service.BasePlaylistService}.
@@ -43,7 +53,23 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
     private static PlaylistManager instance;
 
     private static final String TAG = "PlaylistManager";
-    private List<AudioTrack> AudioTracks = new ArrayList<>();
+    private static final String QUEUE_FILE = "flutter_plugin_playlist_queue";
+    public static final String DEFAULT_PLAYLIST = "default";
+    private static final List<AudioTrack> NO_TRACKS = Collections.emptyList();
+
+    // Replaced, never modified, so any thread can read it, see TrackList. Only the main thread replaces it.
+    private volatile TrackList AudioTracks = TrackList.EMPTY;
+    // Only used on the main thread.
+    private TrackIndex trackIndex = new TrackIndex();
+
+    // AudioTracks and trackIndex belong to the active playlist; the others wait here, see switchPlaylist.
+    private String playlistName = DEFAULT_PLAYLIST;
+    private final HashMap<String, ParkedPlaylist> parkedPlaylists = new HashMap<>();
+    private final MediaPrefetcher prefetcher = new MediaPrefetcher();
+    private final QueueSnapshot queueSnapshot;
+
+    // Where to start when playback begins on a queue restored from the QueueSnapshot, -1 if none.
+    private long restoredPlaybackPosition = -1;
 
     private boolean mediaServiceStarted = false;
     private float volumeLeft = 1.0f;
@@ -58,8 +84,24 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
     // Really need a way to propagate the settings through the app
     private boolean resetStreamOnPause = true;
 
-    private WeakReference<MediaControlsListener> mediaControlsListener = new WeakReference<>(null);
-    private WeakReference<OnErrorListener> errorListener = new WeakReference<>(null);
+    // Whether the next item is prepared on AudioApi's standby player once the current one is buffered.
+    // Off unless the app asks for it, since it holds a second player and its buffers.
+    private boolean preloadNext = false;
+    private boolean currentItemBuffered = false;
+
+    // Progress poll delays in ms per state, 0 means don't poll at all in that state.
+    private long progressPollPlaying = 1000;
+    private long progressPollSeeking = 1000;
+    private long progressPollPaused = 0;
+    private long progressPollBackground = 1000;
+    private boolean inBackground = false;
+
+    // playlistcore only knows about the relay, which passes its events on to these.
+    private final ListenerRelay relay = new ListenerRelay();
+    private final EventDispatcher<PlaylistListener<AudioTrack>> playlistListeners = new EventDispatcher<>();
+    private final EventDispatcher<ProgressListener> progressListeners = new EventDispatcher<>();
+    private final EventDispatcher<MediaControlsListener> mediaControlsListeners = new EventDispatcher<>();
+    private final EventDispatcher<OnErrorListener> errorListeners = new EventDispatcher<>();
     private WeakReference<MediaPlayerApi<AudioTrack>> currentMediaPlayer = new WeakReference<>(null);
 
     public static PlaylistManager getInstance() {
@@ -68,29 +110,61 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
 
     public static void init(final Application application) {
         if (instance != null) {
-            instance.invokeStop();
-            instance.clearItems();
+            // Lets its last write finish before the new instance reads the stored queue.
+            instance.shutdown();
         }
 
         instance = new PlaylistManager(application);
+        MediaCache.init(application);
+        MediaDownloadManager.init(application);
+        instance.restoreQueue();
 
         // Registers the media sources to use the OkHttp client instead of the standard Apache one
         // Note: the OkHttpDataSourceFactory can be found in the ExoPlayer extension library `extension-okhttp`
         ExoMedia.setDataSourceFactoryProvider(new ExoMedia.DataSourceFactoryProvider() {
+            // ExoMedia hands over a raw TransferListener, so forwarding to it is unchecked.
             @Override
-            public DataSource.Factory provide(String userAgent, TransferListener listener) {
-                // Updates the network data source to use the OKHttp implementation and allows it to follow redirects
-                OkHttpClient httpClient = new OkHttpClient().newBuilder().followRedirects(true).followSslRedirects(true).build();
-                DataSource.Factory upstreamFactory = new OkHttpDataSourceFactory(httpClient, userAgent, listener);
+            @SuppressWarnings("unchecked")
+            public DataSource.Factory provide(String userAgent, final TransferListener listener) {
+                // Updates the network data source to use the OKHttp implementation and allows it to follow redirects.
+                // The client is shared with the artwork loader, see MediaHttpClient.
+                // The listener is ExoMedia's bandwidth meter, wrapped to time the first bytes of each track.
+                DataSource.Factory upstreamFactory = new OkHttpDataSourceFactory(MediaHttpClient.get(), userAgent, new TransferListener<DataSource>() {
+                    @Override
+                    public void onTransferStart(DataSource source, DataSpec dataSpec) {
+                        StartupMetrics.transferStarted(source, dataSpec.uri.toString());
+                        if (listener != null) {
+                            listener.onTransferStart(source, dataSpec);
+                        }
+                    }
+
+                    @Override
+                    public void onBytesTransferred(DataSource source, int bytesTransferred) {
+                        StartupMetrics.bytesTransferred(source);
+                        if (listener != null) {
+                            listener.onBytesTransferred(source, bytesTransferred);
+                        }
+                    }
+
+                    @Override
+                    public void onTransferEnd(DataSource source) {
+                        if (listener != null) {
+                            listener.onTransferEnd(source);
+                        }
+                    }
+                });
 
                 // Adds a cache around the upstreamFactory.
-                // This sets a cache of 100MB, we might make this configurable.
-                Cache cache = new SimpleCache(application.getCacheDir(), new LeastRecentlyUsedCacheEvictor(100 * 1024 * 1024));
-                return new CacheDataSourceFactory(cache, upstreamFactory, CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+                // The cache is shared by the whole process, see MediaCache (100MB LRU by default).
+                return new CacheDataSourceFactory(MediaCache.getCache(), upstreamFactory, CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
             }
         });
 
         application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            // Switching activities starts the new one before stopping the old one,
+            // so the app is only in the background once none are started.
+            private int startedActivities = 0;
+
             @Override
             public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
 
@@ -98,7 +172,9 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
 
             @Override
             public void onActivityStarted(Activity activity) {
-
+                if (startedActivities++ == 0) {
+                    instance.setInBackground(false);
+                }
             }
 
             @Override
@@ -113,7 +189,9 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
 
             @Override
             public void onActivityStopped(Activity activity) {
-
+                if (startedActivities > 0 && --startedActivities == 0) {
+                    instance.setInBackground(true);
+                }
             }
 
             @Override
@@ -123,8 +201,7 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
 
             @Override
             public void onActivityDestroyed(Activity activity) {
-                instance.invokeStop();
-                instance.clearItems();
+                instance.shutdown();
             }
         });
     }
@@ -132,6 +209,29 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
     private PlaylistManager(Application application) {
         super(application, MediaService.class);
         this.setParameters(AudioTracks, -1);
+        registerPlaylistListener(relay);
+        registerProgressListener(relay);
+
+        queueSnapshot = new QueueSnapshot(new File(application.getFilesDir(), QUEUE_FILE), new QueueSnapshot.Source() {
+            @Override
+            public List<AudioTrack> getItems() {
+                return AudioTracks;
+            }
+
+            @Override
+            public int getCurrentPosition() {
+                return PlaylistManager.this.getCurrentPosition();
+            }
+
+            @Override
+            public long getPlaybackPosition() {
+                if (restoredPlaybackPosition >= 0) {
+                    return restoredPlaybackPosition;
+                }
+                MediaProgress progress = getCurrentProgress();
+                return progress != null ? progress.getPosition() : 0;
+            }
+        });
     }
 
     public void onMediaServiceInit(boolean hasInit) {
@@ -150,12 +250,44 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
         }
     }
 
-    public void setOnErrorListener(OnErrorListener listener) {
-        errorListener = new WeakReference<>(listener);
+    /*
+     * Listeners are held weakly and only once each, see EventDispatcher. Use these
+     * rather than playlistcore's registerPlaylistListener/registerProgressListener.
+     */
+
+    public void addErrorListener(OnErrorListener listener) {
+        errorListeners.add(listener);
     }
 
-    public void setMediaControlsListener(MediaControlsListener listener) {
-        mediaControlsListener = new WeakReference<>(listener);
+    public void removeErrorListener(OnErrorListener listener) {
+        errorListeners.remove(listener);
+    }
+
+    public void addMediaControlsListener(MediaControlsListener listener) {
+        mediaControlsListeners.add(listener);
+    }
+
+    public void removeMediaControlsListener(MediaControlsListener listener) {
+        mediaControlsListeners.remove(listener);
+    }
+
+    public void addPlaylistListener(PlaylistListener<AudioTrack> listener) {
+        playlistListeners.add(listener);
+    }
+
+    public void removePlaylistListener(PlaylistListener<AudioTrack> listener) {
+        playlistListeners.remove(listener);
+    }
+
+    // The poll is stopped while nobody is listening.
+    public void addProgressListener(ProgressListener listener) {
+        progressListeners.add(listener);
+        refreshProgressPoll();
+    }
+
+    public void removeProgressListener(ProgressListener listener) {
+        progressListeners.remove(listener);
+        refreshProgressPoll();
     }
 
     public boolean getResetStreamOnPause() {
@@ -166,6 +298,66 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
         resetStreamOnPause = val;
     }
 
+    /*
+     * Progress polling
+     */
+
+    public void setProgressPollDelays(long playing, long seeking, long paused, long background) {
+        progressPollPlaying = playing;
+        progressPollSeeking = seeking;
+        progressPollPaused = paused;
+        progressPollBackground = background;
+        refreshProgressPoll();
+    }
+
+    public long getProgressPollPlaying() {
+        return progressPollPlaying;
+    }
+
+    public long getProgressPollSeeking() {
+        return progressPollSeeking;
+    }
+
+    public long getProgressPollPaused() {
+        return progressPollPaused;
+    }
+
+    public long getProgressPollBackground() {
+        return progressPollBackground;
+    }
+
+    public long getProgressPollDelay(boolean seeking, boolean playing) {
+        if (progressListeners.isEmpty()) {
+            return 0;
+        }
+        if (seeking) {
+            return progressPollSeeking;
+        }
+        if (!playing) {
+            return progressPollPaused;
+        }
+        return inBackground ? progressPollBackground : progressPollPlaying;
+    }
+
+    private void setInBackground(boolean inBackground) {
+        if (inBackground == this.inBackground) {
+            return;
+        }
+        this.inBackground = inBackground;
+        refreshProgressPoll();
+        if (inBackground) {
+            // The process may well be killed from here on.
+            queueSnapshot.schedule();
+            queueSnapshot.flush();
+        }
+    }
+
+    private void refreshProgressPoll() {
+        if (getPlaylistHandler() instanceof AudioPlaylistHandler) {
+            ((AudioPlaylistHandler<?, ?>) getPlaylistHandler()).updateProgressPoll();
+        }
+    }
+
     public AudioTrack getCurrentErrorTrack() {
         return currentErrorTrack;
     }
@@ -181,9 +373,7 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
     @Override
     public boolean onError(Exception e) {
         Log.i(TAG, "onError: " + e.toString());
-        if (errorListener.get() != null) {
-            errorListener.get().onError(e);
-        }
+        errorListeners.dispatch(ERROR, e);
         return true;
     }
 
@@ -240,12 +430,11 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
                 setCurrentPosition(Math.max(0, getCurrentPosition() - 1));
             }
             AudioTrack prevItem = getCurrentItem();
+            StartupMetrics.requested(false);
 
             if (!previousInvoked) { // this command came from the notification, not the user
                 Log.i(TAG, "PlaylistManager.previous: invoked via service.");
-                if (mediaControlsListener.get() != null) {
-                    mediaControlsListener.get().onPrevious(prevItem, getCurrentPosition());
-                }
+                mediaControlsListeners.dispatch(previousEvent, prevItem);
             }
 
             previousInvoked = false;
@@ -271,6 +460,7 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
             }
         }
 
+        StartupMetrics.requested(false);
         raiseAndCheckOnNext();
         return getCurrentItem();
     }
@@ -279,13 +469,88 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
         AudioTrack nextItem = getCurrentItem();
         if (!nextInvoked) { // this command came from the notification, not the user
             Log.i(TAG, "PlaylistManager.next: invoked via service.");
-            if (mediaControlsListener.get() != null) {
-                mediaControlsListener.get().onNext(nextItem, getCurrentPosition());
-            }
+            mediaControlsListeners.dispatch(nextEvent, nextItem);
         }
         nextInvoked = false;
     }
 
+    /*
+     * Event delivery, see EventDispatcher. The events are created once, so that
+     * dispatching them allocates nothing.
+     */
+
+    // Every error listener gets every error, whatever the others return.
+    private static final EventDispatcher.Event<OnErrorListener, Exception> ERROR = new EventDispatcher.Event<OnErrorListener, Exception>() {
+        @Override
+        public boolean dispatch(OnErrorListener listener, Exception e) {
+            listener.onError(e);
+            return false;
+        }
+    };
+
+    private static final EventDispatcher.Event<ProgressListener, MediaProgress> PROGRESS_UPDATED = new EventDispatcher.Event<ProgressListener, MediaProgress>() {
+        @Override
+        public boolean dispatch(ProgressListener listener, MediaProgress progress) {
+            return listener.onProgressUpdated(progress);
+        }
+    };
+
+    private static final EventDispatcher.Event<PlaylistListener<AudioTrack>, PlaybackState> PLAYBACK_STATE_CHANGED = new EventDispatcher.Event<PlaylistListener<AudioTrack>, PlaybackState>() {
+        @Override
+        public boolean dispatch(PlaylistListener<AudioTrack> listener, PlaybackState playbackState) {
+            return listener.onPlaybackStateChanged(playbackState);
+        }
+    };
+
+    private final EventDispatcher.Event<MediaControlsListener, AudioTrack> nextEvent = new EventDispatcher.Event<MediaControlsListener, AudioTrack>() {
+        @Override
+        public boolean dispatch(MediaControlsListener listener, AudioTrack item) {
+            listener.onNext(item, getCurrentPosition());
+            return false;
+        }
+    };
+
+    private final EventDispatcher.Event<MediaControlsListener, AudioTrack> previousEvent = new EventDispatcher.Event<MediaControlsListener, AudioTrack>() {
+        @Override
+        public boolean dispatch(MediaControlsListener listener, AudioTrack item) {
+            listener.onPrevious(item, getCurrentPosition());
+            return false;
+        }
+    };
+
+    /*
+     * The one playlist and progress listener registered with playlistcore. Like
+     * playlistcore, it stops at the first listener that consumes an event.
+     */
+    private class ListenerRelay implements PlaylistListener<AudioTrack>, ProgressListener,
+            EventDispatcher.Event<PlaylistListener<AudioTrack>, AudioTrack> {
+        // Of the item change being dispatched. Only touched on the main thread.
+        private boolean hasNext;
+        private boolean hasPrevious;
+
+        @Override
+        public boolean onPlaylistItemChanged(AudioTrack currentItem, boolean hasNext, boolean hasPrevious) {
+            this.hasNext = hasNext;
+            this.hasPrevious = hasPrevious;
+            return playlistListeners.dispatch(this, currentItem);
+        }
+
+        @Override
+        public boolean dispatch(PlaylistListener<AudioTrack> listener, AudioTrack currentItem) {
+            return listener.onPlaylistItemChanged(currentItem, hasNext, hasPrevious);
+        }
+
+        @Override
+        public boolean onPlaybackStateChanged(PlaybackState playbackState) {
+            return playlistListeners.dispatch(PLAYBACK_STATE_CHANGED, playbackState);
+        }
+
+        @Override
+        public boolean onProgressUpdated(MediaProgress progress) {
+            return progressListeners.dispatch(PROGRESS_UPDATED, progress);
+        }
+    }
+
 
     /*
      * List management
@@ -315,8 +580,7 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
             }
         }
         if (idStart != null && !"".equals((idStart))) {
-            int code = idStart.hashCode();
-            setCurrentItem(code);
+            setCurrentTrackId(idStart);
         }
 
         // We assume that if the playlist is fully loaded in one go,
@@ -326,36 +590,65 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
         beginPlayback(seekStart, options.getStartPaused());
     }
 
+    /*
+     * The active playlist as it is now. Edits make a new version rather than change
+     * this one, so it can be read on any thread and kept for as long as needed.
+     */
+    public List<AudioTrack> getQueue() {
+        return AudioTracks;
+    }
+
     public void addItem(AudioTrack item) {
         if (item == null) {
             return;
         }
-        AudioTracks.add(item);
+        AudioTracks = AudioTracks.appended(item);
+        trackIndex.onChanged(AudioTracks, NO_TRACKS);
         setItems(AudioTracks);
+        onItemsChanged();
     }
 
     public void insertItem(AudioTrack item, int index) {
         if (item == null) {
             return;
         }
-        AudioTrack currentItem = getCurrentItem(); // may
-        AudioTracks.add(index, item);
+        int currentPosition = getCurrentPosition();
+        AudioTrack currentItem = getCurrentItem(); // may be null
+        AudioTracks = AudioTracks.insertedAll(index, Collections.singletonList(item));
+        trackIndex.onChanged(AudioTracks, NO_TRACKS);
         setItems(AudioTracks);
-        setCurrentPosition(AudioTracks.indexOf(currentItem));
+        setCurrentPosition(shiftedPosition(currentItem, currentPosition, index, 1));
+        onItemsChanged();
     }
 
     public void addAllItems(List<AudioTrack> items) {
+        int currentPosition = getCurrentPosition();
         AudioTrack currentItem = getCurrentItem(); // may be null
-        AudioTracks.addAll(items);
-        setItems(AudioTracks); // not *strictly* needed since they share the reference, but for good measure..
-        setCurrentPosition(AudioTracks.indexOf(currentItem));
+        int fromIndex = AudioTracks.size();
+        AudioTracks = AudioTracks.appendedAll(items);
+        trackIndex.onChanged(AudioTracks, NO_TRACKS);
+        setItems(AudioTracks);
+        setCurrentPosition(shiftedPosition(currentItem, currentPosition, fromIndex, items.size()));
+        onItemsChanged();
     }
 
     public void insertAllItems(List<AudioTrack> items, int index) {
+        int currentPosition = getCurrentPosition();
         AudioTrack currentItem = getCurrentItem(); // may be null
-        AudioTracks.addAll(index, items);
-        setItems(AudioTracks); // not *strictly* needed since they share the reference, but for good measure..
-        setCurrentPosition(AudioTracks.indexOf(currentItem));
+        AudioTracks = AudioTracks.insertedAll(index, items);
+        trackIndex.onChanged(AudioTracks, NO_TRACKS);
+        setItems(AudioTracks);
+        setCurrentPosition(shiftedPosition(currentItem, currentPosition, index, items.size()));
+        onItemsChanged();
+    }
+
+    // Where the current item ends up after `count` items were inserted at `index`.
+    // This replaces an AudioTracks.indexOf(currentItem) scan after every change.
+    private int shiftedPosition(AudioTrack currentItem, int currentPosition, int index, int count) {
+        if (currentItem == null) {
+            return BasePlaylistManager.INVALID_POSITION;
+        }
+        return index <= currentPosition ? currentPosition + count : currentPosition;
     }
 
     public AudioTrack removeItem(int index, String itemId) {
@@ -366,7 +659,8 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
         int resolvedIndex = resolveItemPosition(index, itemId);
         if (resolvedIndex >= 0 && resolvedIndex < AudioTracks.size()) {
             foundItem = AudioTracks.get(resolvedIndex);
-            AudioTracks.remove(resolvedIndex);
+            AudioTracks = AudioTracks.removed(resolvedIndex);
+            trackIndex.onChanged(AudioTracks, Collections.singletonList(foundItem));
 
             setItems(AudioTracks);
 
@@ -377,38 +671,369 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
                         this.getPlaylistHandler().pause(true);
                     }
 
-                    setCurrentPosition(AudioTracks.indexOf(currentItem));
+                    // The current item itself is gone.
+                    setCurrentPosition(BasePlaylistManager.INVALID_POSITION);
                     this.beginPlayback(0, !wasPlaying);
+                } else if (currentItem != null) {
+                    setCurrentPosition(currentPosition - 1);
                 } else {
-                    setCurrentPosition(AudioTracks.indexOf(currentItem));
+                    setCurrentPosition(BasePlaylistManager.INVALID_POSITION);
                 }
             }
+            onItemsChanged();
         }
 
         return foundItem;
     }
 
+    /*
+     * Every removal is resolved against the list as it was before the call,
+     * then the remaining tracks are copied to the new version in a single pass. The current position is
+     * adjusted once, and playback is restarted at most once (only if the
+     * current item was among the removed ones), same as removeItem does.
+     */
     public ArrayList<AudioTrack> removeAllItems(ArrayList<TrackRemovalItem> items) {
         ArrayList<AudioTrack> removedTracks = new ArrayList<>();
+        TrackList tracks = AudioTracks;
+        int size = tracks.size();
+        if (items == null || items.isEmpty() || size == 0) {
+            return removedTracks;
+        }
+
+        int currentPosition = getCurrentPosition();
+        AudioTrack currentItem = getCurrentItem(); // may be null
 
+        boolean[] removed = new boolean[size];
+        int removedCount = 0;
         for (TrackRemovalItem item : items) {
-            AudioTrack removed = removeItem(item.trackIndex, item.trackId);
+            int resolvedIndex = resolveItemPosition(item.trackIndex, item.trackId);
+            if (resolvedIndex >= 0 && resolvedIndex < size && !removed[resolvedIndex]) {
+                removed[resolvedIndex] = true;
+                removedCount++;
+            }
+        }
 
-            if (removed != null) {
-                removedTracks.add(removed);
+        if (removedCount == 0) {
+            return removedTracks;
+        }
+
+        int removedBeforeCurrent = 0;
+        for (int index = 0; index < size; index++) {
+            if (removed[index]) {
+                removedTracks.add(tracks.get(index));
+                if (index < currentPosition) {
+                    removedBeforeCurrent++;
+                }
             }
         }
+        AudioTracks = tracks.removedAll(removed, removedCount);
+        trackIndex.onChanged(AudioTracks, removedTracks);
+
+        setItems(AudioTracks);
+
+        if (currentPosition >= 0 && currentPosition < size && removed[currentPosition]) {
+            boolean wasPlaying = this.isPlaying();
+            if (this.getPlaylistHandler() != null) {
+                this.getPlaylistHandler().pause(true);
+            }
+
+            // The current item itself is gone.
+            setCurrentPosition(BasePlaylistManager.INVALID_POSITION);
+            this.beginPlayback(0, !wasPlaying);
+        } else if (removedBeforeCurrent > 0) {
+            setCurrentPosition(currentItem != null
+                    ? currentPosition - removedBeforeCurrent
+                    : BasePlaylistManager.INVALID_POSITION);
+        }
+        onItemsChanged();
 
         return removedTracks;
     }
 
     public void clearItems() {
+        resetItems();
+        queueSnapshot.schedule();
+    }
+
+    /*
+     * Empties the queue like clearItems, but for when the player is let go of
+     * rather than cleared: the stored queue keeps what was there, so it can be
+     * restored next time.
+     */
+    public void discardItems() {
+        queueSnapshot.flush();
+        resetItems();
+    }
+
+    /*
+     * Stops and empties this instance for good when the app is torn down. The
+     * stored queue keeps what was there, and this instance no longer writes it.
+     */
+    public void shutdown() {
+        queueSnapshot.close();
+        invokeStop();
+        resetItems();
+    }
+
+    private void resetItems() {
         if (this.getPlaylistHandler() != null) {
             this.getPlaylistHandler().stop();
         }
-        AudioTracks.clear();
+        AudioTracks = TrackList.EMPTY;
+        trackIndex.clear();
+        prefetcher.cancel();
+        releasePreload();
         setItems(AudioTracks);
         setCurrentPosition(BasePlaylistManager.INVALID_POSITION);
+        restoredPlaybackPosition = -1;
+    }
+
+    /*
+     * Named playlists. Only the active one is in AudioTracks; switching parks it with
+     * its cursor and playback position and swaps in the other list as it is, so the
+     * cost doesn't depend on the size of either. Neither list is copied or rebuilt
+     * (TrackLists never change, so parking one is just keeping it),
+     * and the data buffered for the parked current item stays in the MediaCache,
+     * so switching back resumes from disk rather than the network.
+     */
+
+    public String getPlaylistName() {
+        return playlistName;
+    }
+
+    public List<String> getPlaylistNames() {
+        ArrayList<String> names = new ArrayList<>(parkedPlaylists.keySet());
+        names.add(0, playlistName);
+        return names;
+    }
+
+    /*
+     * Makes the named playlist active, creating it empty if it doesn't exist yet.
+     * If the player was playing, the restored current item continues playing from
+     * where it was left; otherwise it is loaded paused.
+     */
+    public void switchPlaylist(String name) {
+        if (name == null || name.equals(playlistName)) {
+            return;
+        }
+
+        boolean wasPlaying = isPlaying();
+        MediaProgress progress = getCurrentProgress();
+        ParkedPlaylist parked = new ParkedPlaylist(AudioTracks, trackIndex, getCurrentPosition(),
+                getCurrentItem() != null && progress != null ? progress.getPosition() : 0);
+
+        if (this.getPlaylistHandler() != null) {
+            this.getPlaylistHandler().stop();
+        }
+        prefetcher.cancel();
+        releasePreload();
+        restoredPlaybackPosition = -1;
+        parkedPlaylists.put(playlistName, parked);
+
+        ParkedPlaylist next = parkedPlaylists.remove(name);
+        if (next == null) {
+            next = new ParkedPlaylist(TrackList.EMPTY, new TrackIndex(), BasePlaylistManager.INVALID_POSITION, 0);
+        }
+        playlistName = name;
+        AudioTracks = next.tracks;
+        trackIndex = next.trackIndex;
+        setItems(AudioTracks);
+
+        boolean hasCurrent = next.currentPosition >= 0 && next.currentPosition < AudioTracks.size();
+        setCurrentPosition(hasCurrent ? next.currentPosition : BasePlaylistManager.INVALID_POSITION);
+        if (hasCurrent) {
+            beginPlayback(next.playbackPosition, !wasPlaying);
+        }
+        onItemsChanged();
+    }
+
+    /*
+     * Drops a parked playlist. The active one can't be removed, use clearItems.
+     */
+    public boolean removePlaylist(String name) {
+        return parkedPlaylists.remove(name) != null;
+    }
+
+    private static class ParkedPlaylist {
+        final TrackList tracks;
+        final TrackIndex trackIndex;
+        final int currentPosition;
+        final long playbackPosition;
+
+        ParkedPlaylist(TrackList tracks, TrackIndex trackIndex, int currentPosition, long playbackPosition) {
+            this.tracks = tracks;
+            this.trackIndex = trackIndex;
+            this.currentPosition = currentPosition;
+            this.playbackPosition = playbackPosition;
+        }
+    }
+
+    /*
+     * Queue persistence, see QueueSnapshot.
+     */
+
+    public boolean getPersistQueue() {
+        return queueSnapshot.isEnabled();
+    }
+
+    public void setPersistQueue(boolean persistQueue) {
+        queueSnapshot.setEnabled(persistQueue);
+    }
+
+    // Called when the playback position is worth keeping, e.g. on pause.
+    public void onPlaybackPositionChanged() {
+        restoredPlaybackPosition = -1;
+        queueSnapshot.schedule();
+    }
+
+    /*
+     * The playback position to start the restored current item from,
+     * or -1 if the queue wasn't restored or playback has already begun since.
+     */
+    public long getRestoredPlaybackPosition() {
+        return restoredPlaybackPosition;
+    }
+
+    // Same as getRestoredPlaybackPosition, but only once; used when playback begins.
+    public long takeRestoredPlaybackPosition() {
+        long position = restoredPlaybackPosition;
+        restoredPlaybackPosition = -1;
+        return position;
+    }
+
+    private void restoreQueue() {
+        QueueSnapshot.Restored restored = queueSnapshot.restore();
+        if (restored == null || restored.items.isEmpty()) {
+            return;
+        }
+
+        AudioTracks = TrackList.of(restored.items);
+        trackIndex.onChanged(AudioTracks, NO_TRACKS);
+        setItems(AudioTracks);
+        if (restored.currentPosition >= 0 && restored.currentPosition < AudioTracks.size()) {
+            setCurrentPosition(restored.currentPosition);
+            restoredPlaybackPosition = restored.playbackPosition;
+        }
+        Log.i(TAG, "Restored " + AudioTracks.size() + " queued tracks");
+    }
+
+    private void onItemsChanged() {
+        replanPrefetch();
+        preloadNextItem();
+        queueSnapshot.schedule();
+    }
+
+    /*
+     * Prefetching of upcoming items, see MediaPrefetcher.
+     */
+
+    public MediaPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    public void onCurrentItemChanged() {
+        currentItemBuffered = false;
+        prefetcher.setCurrentItemBuffered(false);
+        onItemsChanged();
+    }
+
+    public void onCurrentItemBuffered() {
+        currentItemBuffered = true;
+        prefetcher.setCurrentItemBuffered(true);
+        preloadNextItem();
+    }
+
+    /*
+     * Preloading of the next item on a second player, see AudioApi.preload.
+     * Like prefetching, it waits until the current item is fully buffered.
+     */
+
+    public boolean getPreloadNext() {
+        return preloadNext;
+    }
+
+    public void setPreloadNext(boolean preloadNext) {
+        this.preloadNext = preloadNext;
+        preloadNextItem();
+    }
+
+    // Called by the MediaService when the system asks for memory back.
+    public void onLowMemory() {
+        releasePreload();
+    }
+
+    private void preloadNextItem() {
+        AudioApi audioApi = getAudioApi();
+        if (audioApi == null) {
+            return;
+        }
+        if (!preloadNext) {
+            audioApi.releasePreload();
+        } else if (currentItemBuffered) {
+            audioApi.preload(getNextItem());
+        }
+    }
+
+    private void releasePreload() {
+        AudioApi audioApi = getAudioApi();
+        if (audioApi != null) {
+            audioApi.releasePreload();
+        }
+    }
+
+    private AudioApi getAudioApi() {
+        for (MediaPlayerApi<AudioTrack> mediaPlayer : getMediaPlayers()) {
+            if (mediaPlayer instanceof AudioApi) {
+                return (AudioApi) mediaPlayer;
+            }
+        }
+        return null;
+    }
+
+    // The item next() will move to, without moving.
+    private AudioTrack getNextItem() {
+        TrackList tracks = AudioTracks;
+        int position = getCurrentPosition() + 1;
+        if (getCurrentPosition() < 0 || tracks.isEmpty()) {
+            return null;
+        }
+        if (position >= tracks.size()) {
+            if (!loop) {
+                return null;
+            }
+            position = 0;
+        }
+        return tracks.get(position);
+    }
+
+    private void replanPrefetch() {
+        int depth = prefetcher.getDepth();
+        ArrayList<String> urls = new ArrayList<>();
+        TrackList tracks = AudioTracks;
+        int count = tracks.size();
+        int current = getCurrentPosition();
+
+        // Only look a few items past the depth, so a run of streams doesn't turn this into a full scan.
+        for (int offset = 1; offset < count && offset <= depth * 4 && urls.size() < depth; offset++) {
+            int position = current + offset;
+            if (position >= count) {
+                if (!loop) {
+                    break;
+                }
+                position -= count;
+            }
+
+            AudioTrack track = tracks.get(position);
+            if (track.getIsStream() || track.getDownloaded()) {
+                continue;
+            }
+            String url = track.getMediaUrl();
+            if (url.startsWith(RmxConstants.HTTP_SCHEME_PREFIX) || url.startsWith(RmxConstants.HTTPS_SCHEME_PREFIX)) {
+                urls.add(url);
+            }
+        }
+
+        prefetcher.plan(urls);
     }
 
     private int resolveItemPosition(int trackIndex, String trackId) {
@@ -416,7 +1041,7 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
         if (trackIndex >= 0 && trackIndex < AudioTracks.size()) {
             resolvedPosition = trackIndex;
         } else if (trackId != null && !"".equals(trackId)) {
-            int itemPos = getPositionForItem(trackId.hashCode());
+            int itemPos = getPositionForTrackId(trackId);
             if (itemPos != BasePlaylistManager.INVALID_POSITION) {
                 resolvedPosition = itemPos;
             }
@@ -424,12 +1049,30 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
         return resolvedPosition;
     }
 
+    public int getPositionForTrackId(String trackId) {
+        return trackIndex.indexOf(AudioTracks, trackId);
+    }
+
+    /*
+     * Looks the item up by its full trackId rather than going through
+     * setCurrentItem(long), which scans the list comparing ids.
+     */
+    public boolean setCurrentTrackId(String trackId) {
+        int position = getPositionForTrackId(trackId);
+        if (position == BasePlaylistManager.INVALID_POSITION) {
+            return false;
+        }
+        setCurrentPosition(position);
+        return true;
+    }
+
     public boolean getLoop() {
         return loop;
     }
 
     public void setLoop(boolean newLoop) {
         loop = newLoop;
+        preloadNextItem();
     }
 
     public float getVolumeLeft() {
@@ -463,6 +1106,7 @@ public class PlaylistManager extends ListPlaylistManager<AudioTrack> implements
     }
 
     public void beginPlayback(long seekPosition, boolean startPaused) {
+        StartupMetrics.requested(startPaused);
         super.play(seekPosition, startPaused);
         try {
             setVolume(volumeLeft, volumeRight);
@@ -0,0 +1,326 @@
+package org.gafs.flutter_plugin_playlist.manager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+* Keeps a copy of the queue on disk so it survives the process being killed.
+*
+* Changes are written behind: schedule() only marks the queue dirty, and a while
+* later the state is captured on the main thread (the current TrackList, which
+* never changes, so nothing is copied) and encoded and written on a background thread.
+* The file is replaced with a rename, so a crash mid-write leaves the previous one.
+*
+* Format, all big-endian:
+*
+*   int32 MAGIC, int32 VERSION, int32 currentPosition, int64 playbackPosition (ms),
+*   int32 count, then per track: byte flags (FLAG_IS_STREAM), and the strings
+*   trackId, mediaUrl, thumbnailUrl, title, album, artist.
+*
+* A string is an int32: -1 for null, STRING_NEW followed by int32 length and the
+* UTF-8 bytes, or the index of an earlier STRING_NEW string. Albums, artists and
+* artwork repeat a lot, so each is only stored once.
+*
+* On load the file is memory-mapped and decoded in a single pass.
+*/
+class QueueSnapshot {
+    private static final String TAG = "QueueSnapshot";
+
+    private static final int MAGIC = 0x524d5851; // "RMXQ"
+    private static final int VERSION = 1;
+
+    private static final int FLAG_IS_STREAM = 1;
+
+    private static final int STRING_NULL = -1;
+    private static final int STRING_NEW = -2;
+
+    private static final long WRITE_DELAY_MS = 1000;
+    // How long close() waits for the last write.
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    interface Source {
+        // Called on the main thread when a scheduled write is due. The list must not change afterwards.
+        List<AudioTrack> getItems();
+        int getCurrentPosition();
+        long getPlaybackPosition();
+    }
+
+    static class Restored {
+        final ArrayList<AudioTrack> items;
+        final int currentPosition;
+        final long playbackPosition;
+
+        Restored(ArrayList<AudioTrack> items, int currentPosition, long playbackPosition) {
+            this.items = items;
+            this.currentPosition = currentPosition;
+            this.playbackPosition = playbackPosition;
+        }
+    }
+
+    private final File file;
+    private final Source source;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private boolean enabled = false;
+    private boolean scheduled = false;
+    private boolean closed = false;
+
+    private final Runnable capture = new Runnable() {
+        @Override
+        public void run() {
+            scheduled = false;
+            if (!enabled) {
+                return;
+            }
+
+            final List<AudioTrack> items = source.getItems();
+            final int currentPosition = source.getCurrentPosition();
+            final long playbackPosition = source.getPlaybackPosition();
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(items, currentPosition, playbackPosition);
+                }
+            });
+        }
+    };
+
+    QueueSnapshot(File file, Source source) {
+        this.file = file;
+        this.source = source;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * Turning it off also deletes the stored queue, so nothing is restored on the next start.
+     */
+    void setEnabled(boolean enabled) {
+        if (closed || enabled == this.enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            schedule();
+        } else {
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    file.delete();
+                }
+            });
+        }
+    }
+
+    void schedule() {
+        if (!enabled || scheduled || closed) {
+            return;
+        }
+        scheduled = true;
+        mainHandler.postDelayed(capture, WRITE_DELAY_MS);
+    }
+
+    /*
+     * Writes anything pending now instead of waiting for the delay,
+     * e.g. when the app goes to the background and may be killed.
+     */
+    void flush() {
+        if (!scheduled) {
+            return;
+        }
+        mainHandler.removeCallbacks(capture);
+        capture.run();
+    }
+
+    /*
+     * Writes anything pending, then stops for good: nothing this snapshot is asked
+     * to do afterwards reaches the file. Waits for the write, so that a new
+     * QueueSnapshot on the same file reads what this one left behind.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Gave up waiting for the last write of the queue");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Returns null if there is no stored queue or it can't be read.
+     * A stored queue also means persistence was on, so it stays on.
+     */
+    Restored restore() {
+        if (!file.exists()) {
+            return null;
+        }
+
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                Log.w(TAG, "Ignoring stored queue with an unknown format");
+                file.delete();
+                return null;
+            }
+
+            int currentPosition = buffer.getInt();
+            long playbackPosition = buffer.getLong();
+            int count = buffer.getInt();
+
+            ArrayList<String> strings = new ArrayList<>();
+            ArrayList<AudioTrack> items = new ArrayList<>(count);
+            for (int index = 0; index < count; index++) {
+                int flags = buffer.get();
+                String trackId = readString(buffer, strings);
+                String mediaUrl = readString(buffer, strings);
+                String thumbnailUrl = readString(buffer, strings);
+                String title = readString(buffer, strings);
+                String album = readString(buffer, strings);
+                String artist = readString(buffer, strings);
+                items.add(new AudioTrack(trackId, (flags & FLAG_IS_STREAM) != 0,
+                        mediaUrl, thumbnailUrl, title, album, artist));
+            }
+
+            enabled = true;
+            return new Restored(items, currentPosition, playbackPosition);
+        } catch (Exception e) {
+            Log.w(TAG, "Unable to restore the stored queue: " + e.getMessage());
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    private void write(List<AudioTrack> items, int currentPosition, long playbackPosition) {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = null;
+        try {
+            stream = new FileOutputStream(temp);
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(currentPosition);
+            output.writeLong(playbackPosition);
+            output.writeInt(items.size());
+
+            HashMap<String, Integer> strings = new HashMap<>();
+            for (AudioTrack track : items) {
+                output.writeByte(track.getIsStream() ? FLAG_IS_STREAM : 0);
+                writeString(output, strings, track.getTrackId());
+                writeString(output, strings, track.getMediaUrl());
+                writeString(output, strings, track.getThumbnailUrl());
+                writeString(output, strings, track.getTitle());
+                writeString(output, strings, track.getAlbum());
+                writeString(output, strings, track.getArtist());
+            }
+
+            output.flush();
+            stream.getFD().sync();
+            output.close();
+            stream = null;
+
+            if (!temp.renameTo(file)) {
+                throw new IOException("Unable to move " + temp + " to " + file);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to store the queue: " + e.getMessage());
+            temp.delete();
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, HashMap<String, Integer> strings, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(STRING_NULL);
+            return;
+        }
+
+        Integer index = strings.get(value);
+        if (index != null) {
+            output.writeInt(index);
+            return;
+        }
+
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(STRING_NEW);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer, ArrayList<String> strings) throws IOException {
+        int ref = buffer.getInt();
+        if (ref == STRING_NULL) {
+            return null;
+        }
+        if (ref != STRING_NEW) {
+            if (ref < 0 || ref >= strings.size()) {
+                throw new IOException("Bad string reference " + ref);
+            }
+            return strings.get(ref);
+        }
+
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        String value = new String(bytes, UTF_8);
+        strings.add(value);
+        return value;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Purposefully left blank
+        }
+    }
+}
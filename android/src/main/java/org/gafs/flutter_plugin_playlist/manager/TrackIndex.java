@@ -0,0 +1,179 @@
+package org.gafs.flutter_plugin_playlist.manager;
+
+import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/*
+* Maps a trackId to its position in the playlist so that lookups by id
+* don't have to walk the whole list.
+*
+* Positions shift with every insert or removal, so the index doesn't store them.
+* It stores where the track is in the TrackList's chunks instead, which stays
+* true for as long as the chunk is shared. An edit only creates a few chunks (see
+* TrackList.changedFrom), and only the tracks in those are put again; a lookup
+* turns chunk and offset into a position. Looking up after every single edit
+* therefore costs about one pass over the chunks (size / 128), not over the tracks.
+*
+* When the same trackId appears more than once, the first position wins,
+* matching what List.indexOf used to return. Removing one of those can uncover
+* another, so once there are duplicates any removal makes the next lookup
+* rebuild the index in a single pass.
+*
+* Unlike the TrackList it indexes, this is only used on the main thread.
+*/
+class TrackIndex {
+    private static class Location {
+        AudioTrack[] chunk;
+        int offset;
+
+        Location(AudioTrack[] chunk, int offset) {
+            this.chunk = chunk;
+            this.offset = offset;
+        }
+    }
+
+    private final HashMap<String, Location> locations = new HashMap<>();
+    // The list the locations are for.
+    private TrackList indexed = TrackList.EMPTY;
+    private boolean valid = true;
+    private boolean duplicates = false;
+
+    // While applying an edit: the chunks it dropped, so locations in them are stale.
+    private final Set<AudioTrack[]> replaced = Collections.newSetFromMap(new IdentityHashMap<AudioTrack[], Boolean>());
+    // Chunk positions in chunkIndexesOf, built by the first lookup that needs them.
+    private final IdentityHashMap<AudioTrack[], Integer> chunkIndexes = new IdentityHashMap<>();
+    private TrackList chunkIndexesOf;
+
+    /*
+     * Brings the index up to date with `tracks`, made from the list indexed so far by
+     * a single edit, which took out the tracks in `removed`.
+     */
+    void onChanged(TrackList tracks, List<AudioTrack> removed) {
+        TrackList previous = indexed;
+        indexed = tracks;
+        if (tracks == previous || !valid) {
+            return;
+        }
+        if (duplicates && !removed.isEmpty()) {
+            invalidate();
+            return;
+        }
+
+        // Everything before `from` and after `to` is shared with the previous version.
+        int from = tracks.changedFrom();
+        int to = tracks.changedTo();
+        int suffix = tracks.chunkCount() - to;
+        int previousTo = previous.chunkCount() - suffix;
+        if (previousTo < from
+                || (from > 0 && (from > previous.chunkCount() || previous.chunk(from - 1) != tracks.chunk(from - 1)))
+                || (suffix > 0 && previous.chunk(previousTo) != tracks.chunk(to))) {
+            // Not a single edit of the indexed list after all.
+            invalidate();
+            return;
+        }
+
+        replaced.clear();
+        for (int index = from; index < previousTo; index++) {
+            replaced.add(previous.chunk(index));
+        }
+        for (int index = from; index < to; index++) {
+            replaced.remove(tracks.chunk(index));
+        }
+        for (AudioTrack track : removed) {
+            Location location = track.getTrackId() != null ? locations.get(track.getTrackId()) : null;
+            if (location != null && replaced.contains(location.chunk)) {
+                locations.remove(track.getTrackId());
+            }
+        }
+        for (int index = from; index < to; index++) {
+            AudioTrack[] chunk = tracks.chunk(index);
+            for (int offset = 0; offset < chunk.length; offset++) {
+                put(tracks, chunk, offset);
+            }
+        }
+        replaced.clear();
+    }
+
+    void clear() {
+        locations.clear();
+        indexed = TrackList.EMPTY;
+        valid = true;
+        duplicates = false;
+        chunkIndexesOf = null;
+        chunkIndexes.clear();
+    }
+
+    int indexOf(TrackList tracks, String trackId) {
+        if (trackId == null) {
+            return -1;
+        }
+        if (!valid || tracks != indexed) {
+            rebuild(tracks);
+        }
+        Location location = locations.get(trackId);
+        return location != null ? positionOf(tracks, location) : -1;
+    }
+
+    private void invalidate() {
+        valid = false;
+        locations.clear();
+    }
+
+    private void rebuild(TrackList tracks) {
+        locations.clear();
+        replaced.clear();
+        indexed = tracks;
+        duplicates = false;
+        for (int index = 0; index < tracks.chunkCount(); index++) {
+            AudioTrack[] chunk = tracks.chunk(index);
+            for (int offset = 0; offset < chunk.length; offset++) {
+                put(tracks, chunk, offset);
+            }
+        }
+        valid = true;
+    }
+
+    private void put(TrackList tracks, AudioTrack[] chunk, int offset) {
+        String trackId = chunk[offset].getTrackId();
+        if (trackId == null) {
+            return;
+        }
+        Location location = locations.get(trackId);
+        if (location == null) {
+            locations.put(trackId, new Location(chunk, offset));
+            return;
+        }
+        if (location.chunk == chunk && location.offset == offset) {
+            return;
+        }
+        if (!replaced.contains(location.chunk)) {
+            // The id is also somewhere else that is still in the list.
+            duplicates = true;
+            if (positionOf(tracks, location) < tracks.chunkStart(chunkIndex(tracks, chunk)) + offset) {
+                return;
+            }
+        }
+        location.chunk = chunk;
+        location.offset = offset;
+    }
+
+    private int positionOf(TrackList tracks, Location location) {
+        return tracks.chunkStart(chunkIndex(tracks, location.chunk)) + location.offset;
+    }
+
+    private int chunkIndex(TrackList tracks, AudioTrack[] chunk) {
+        if (chunkIndexesOf != tracks) {
+            chunkIndexes.clear();
+            for (int index = 0; index < tracks.chunkCount(); index++) {
+                chunkIndexes.put(tracks.chunk(index), index);
+            }
+            chunkIndexesOf = tracks;
+        }
+        return chunkIndexes.get(chunk);
+    }
+}
@@ -0,0 +1,396 @@
+package org.gafs.flutter_plugin_playlist.manager;
+
+import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/*
+* One version of the playlist, which never changes once it is built.
+*
+* PlaylistManager replaces its TrackList on every edit and hands the new one to
+* playlistcore, so whoever reads a TrackList (playlistcore's service and handler,
+* the QueueSnapshot writer) sees a consistent list on any thread without locking,
+* however the queue has changed since. The fields are final and everything is
+* written before the constructor returns, so a version is safe to read even where
+* it was handed over without synchronization.
+*
+* The tracks are kept in chunks of at most CHUNK_SIZE, which are never modified
+* and are shared by every version that contains them. An edit copies the array of
+* chunk references, the chunk(s) it touches, and the running totals in `ends`,
+* about size / CHUNK_SIZE entries in all, instead of every track. Edits keep the
+* chunks they build full where they can, so get() usually finds the chunk from the
+* index alone and only falls back to a binary search of `ends` after some edits.
+*
+* A version also knows which of its chunks the edit that made it created (from
+* changedFrom to changedTo, everything else is shared in the same order), so that
+* TrackIndex only has to look at those.
+*/
+final class TrackList extends AbstractList<AudioTrack> implements RandomAccess {
+    private static final int CHUNK_SHIFT = 7;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    static final TrackList EMPTY = new TrackList(new AudioTrack[0][], new int[0], 0, 0, 0);
+
+    // Only the first chunkCount entries of both arrays are used.
+    private final AudioTrack[][] chunks;
+    // ends[i] is the number of tracks in chunks 0 to i, so the last one is the size.
+    private final int[] ends;
+    private final int chunkCount;
+    private final int size;
+    private final int changedFrom;
+    private final int changedTo;
+
+    private TrackList(AudioTrack[][] chunks, int[] ends, int chunkCount, int changedFrom, int changedTo) {
+        this.chunks = chunks;
+        this.ends = ends;
+        this.chunkCount = chunkCount;
+        this.size = chunkCount > 0 ? ends[chunkCount - 1] : 0;
+        this.changedFrom = changedFrom;
+        this.changedTo = changedTo;
+    }
+
+    static TrackList of(List<AudioTrack> tracks) {
+        return EMPTY.appendedAll(tracks);
+    }
+
+    @Override
+    public AudioTrack get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int chunk = chunkAt(index);
+        return chunks[chunk][index - startOf(chunk)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    int chunkCount() {
+        return chunkCount;
+    }
+
+    AudioTrack[] chunk(int index) {
+        return chunks[index];
+    }
+
+    // Index of the first track in the chunk.
+    int chunkStart(int index) {
+        return startOf(index);
+    }
+
+    // The chunks from changedFrom() up to changedTo() weren't in the version this one was made from.
+    int changedFrom() {
+        return changedFrom;
+    }
+
+    int changedTo() {
+        return changedTo;
+    }
+
+    @Override
+    public Iterator<AudioTrack> iterator() {
+        return iterator(0);
+    }
+
+    // Walks the chunks in order from `fromIndex` on, rather than looking every index up.
+    Iterator<AudioTrack> iterator(int fromIndex) {
+        if (fromIndex < 0 || fromIndex > size) {
+            throw new IndexOutOfBoundsException("Index: " + fromIndex + ", Size: " + size);
+        }
+        int chunk = fromIndex < size ? chunkAt(fromIndex) : chunkCount;
+        return new ChunkIterator(chunk, fromIndex - startOf(chunk));
+    }
+
+    TrackList appended(AudioTrack track) {
+        return appendedAll(Collections.singletonList(track));
+    }
+
+    TrackList appendedAll(List<AudioTrack> tracks) {
+        if (tracks.isEmpty()) {
+            return this;
+        }
+        // The last chunk is copied rather than shared, so that it gets filled up.
+        int last = chunkCount - 1;
+        Builder builder = new Builder(chunkCount + tracks.size() / CHUNK_SIZE + 1);
+        builder.addChunks(this, 0, Math.max(last, 0));
+        if (last >= 0) {
+            builder.addTracks(chunks[last], 0, chunks[last].length);
+        }
+        builder.addAll(tracks);
+        return builder.build();
+    }
+
+    TrackList insertedAll(int index, List<AudioTrack> tracks) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index == size) {
+            return appendedAll(tracks);
+        }
+        if (tracks.isEmpty()) {
+            return this;
+        }
+        int chunk = chunkAt(index);
+        int offset = index - startOf(chunk);
+        Builder builder = new Builder(chunkCount + tracks.size() / CHUNK_SIZE + 2);
+        builder.addChunks(this, 0, chunk);
+        builder.addTracks(chunks[chunk], 0, offset);
+        builder.addAll(tracks);
+        builder.addTracks(chunks[chunk], offset, chunks[chunk].length);
+        builder.addChunks(this, chunk + 1, chunkCount);
+        return builder.build();
+    }
+
+    TrackList removed(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int chunk = chunkAt(index);
+        int offset = index - startOf(chunk);
+        Builder builder = new Builder(chunkCount);
+        builder.addChunks(this, 0, chunk);
+        builder.addTracks(chunks[chunk], 0, offset);
+        builder.addTracks(chunks[chunk], offset + 1, chunks[chunk].length);
+        builder.addChunks(this, chunk + 1, chunkCount);
+        return builder.build();
+    }
+
+    /*
+     * This list without the tracks flagged in `removed` (one flag per track),
+     * of which there are `removedCount`. Chunks without any are kept as they are.
+     */
+    TrackList removedAll(boolean[] removed, int removedCount) {
+        if (removedCount == 0) {
+            return this;
+        }
+        if (removedCount == size) {
+            return EMPTY;
+        }
+        Builder builder = new Builder(chunkCount);
+        int start = 0;
+        for (int index = 0; index < chunkCount; index++) {
+            AudioTrack[] chunk = chunks[index];
+            int flagged = start;
+            while (flagged < start + chunk.length && !removed[flagged]) {
+                flagged++;
+            }
+            if (flagged == start + chunk.length) {
+                builder.addChunk(chunk);
+            } else {
+                builder.addTracks(chunk, 0, flagged - start);
+                for (int track = flagged; track < start + chunk.length; track++) {
+                    if (!removed[track]) {
+                        builder.add(chunk[track - start]);
+                    }
+                }
+            }
+            start += chunk.length;
+        }
+        return builder.build();
+    }
+
+    /*
+     * The chunk holding the track at `index`, which must be in range. A chunk holds
+     * at most CHUNK_SIZE tracks, so it can't be one before index / CHUNK_SIZE, and
+     * while the chunks up to there are full it is that one.
+     */
+    private int chunkAt(int index) {
+        int low = index >> CHUNK_SHIFT;
+        if (ends[low] > index) {
+            return low;
+        }
+        low++;
+        int high = chunkCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] > index) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private int startOf(int chunk) {
+        return chunk > 0 ? ends[chunk - 1] : 0;
+    }
+
+    private class ChunkIterator implements Iterator<AudioTrack> {
+        private int chunk;
+        private int offset;
+
+        ChunkIterator(int chunk, int offset) {
+            this.chunk = chunk;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return chunk < chunkCount;
+        }
+
+        @Override
+        public AudioTrack next() {
+            if (chunk >= chunkCount) {
+                throw new NoSuchElementException();
+            }
+            AudioTrack track = chunks[chunk][offset++];
+            if (offset == chunks[chunk].length) {
+                chunk++;
+                offset = 0;
+            }
+            return track;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /*
+     * Puts a version together from whole chunks, which are shared, and single tracks,
+     * which are gathered into new chunks of CHUNK_SIZE. A whole chunk that doesn't
+     * fit into the new one being filled ends that one early, to keep the sharing.
+     */
+    private static class Builder {
+        private AudioTrack[][] chunks;
+        private int[] ends;
+        private int chunkCount = 0;
+        private int size = 0;
+        private AudioTrack[] pending;
+        private int pendingCount = 0;
+        // The range of chunks made here rather than shared.
+        private int changedFrom = -1;
+        private int changedTo = 0;
+
+        Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            chunks = new AudioTrack[capacity][];
+            ends = new int[capacity];
+        }
+
+        // Chunks from..to of source, copied as a run (with their ends shifted) once nothing is pending.
+        void addChunks(TrackList source, int from, int to) {
+            while (pendingCount > 0 && from < to) {
+                addChunk(source.chunks[from++]);
+            }
+            int count = to - from;
+            if (count <= 0) {
+                return;
+            }
+            ensureCapacity(chunkCount + count);
+            System.arraycopy(source.chunks, from, chunks, chunkCount, count);
+            int shift = size - source.startOf(from);
+            for (int index = 0; index < count; index++) {
+                ends[chunkCount + index] = source.ends[from + index] + shift;
+            }
+            chunkCount += count;
+            size = ends[chunkCount - 1];
+        }
+
+        void addChunk(AudioTrack[] chunk) {
+            if (pendingCount > 0) {
+                if (pendingCount + chunk.length <= CHUNK_SIZE) {
+                    addTracks(chunk, 0, chunk.length);
+                    return;
+                }
+                flush();
+            }
+            push(chunk);
+        }
+
+        void addTracks(AudioTrack[] source, int from, int to) {
+            while (from < to) {
+                if (pending == null) {
+                    pending = new AudioTrack[CHUNK_SIZE];
+                }
+                int count = Math.min(to - from, CHUNK_SIZE - pendingCount);
+                System.arraycopy(source, from, pending, pendingCount, count);
+                pendingCount += count;
+                from += count;
+                if (pendingCount == CHUNK_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        void addAll(List<AudioTrack> tracks) {
+            int count = tracks.size();
+            int index = 0;
+            while (pendingCount > 0 && index < count) {
+                add(tracks.get(index++));
+            }
+            // Whole chunks are filled in directly, pending would only be copied.
+            while (count - index >= CHUNK_SIZE) {
+                AudioTrack[] chunk = new AudioTrack[CHUNK_SIZE];
+                for (int offset = 0; offset < CHUNK_SIZE; offset++) {
+                    chunk[offset] = tracks.get(index++);
+                }
+                pushNew(chunk);
+            }
+            while (index < count) {
+                add(tracks.get(index++));
+            }
+        }
+
+        void add(AudioTrack track) {
+            if (pending == null) {
+                pending = new AudioTrack[CHUNK_SIZE];
+            }
+            pending[pendingCount++] = track;
+            if (pendingCount == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        TrackList build() {
+            flush();
+            if (chunkCount == 0) {
+                return EMPTY;
+            }
+            return new TrackList(chunks, ends, chunkCount, changedFrom >= 0 ? changedFrom : 0, changedTo);
+        }
+
+        private void flush() {
+            if (pendingCount == 0) {
+                return;
+            }
+            pushNew(pendingCount == CHUNK_SIZE ? pending : Arrays.copyOf(pending, pendingCount));
+            pending = null;
+            pendingCount = 0;
+        }
+
+        private void push(AudioTrack[] chunk) {
+            ensureCapacity(chunkCount + 1);
+            size += chunk.length;
+            ends[chunkCount] = size;
+            chunks[chunkCount++] = chunk;
+        }
+
+        private void pushNew(AudioTrack[] chunk) {
+            if (changedFrom < 0) {
+                changedFrom = chunkCount;
+            }
+            push(chunk);
+            changedTo = chunkCount;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > chunks.length) {
+                capacity = Math.max(capacity, chunks.length * 2);
+                chunks = Arrays.copyOf(chunks, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+        }
+    }
+}
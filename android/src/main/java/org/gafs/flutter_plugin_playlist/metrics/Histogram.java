@@ -0,0 +1,68 @@
+package org.gafs.flutter_plugin_playlist.metrics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A rolling histogram of durations in milliseconds. It keeps the last
+ * {@link #WINDOW} samples in a ring, so percentiles follow recent behavior
+ * rather than everything since startup; count and max cover all samples.
+ * <p>
+ * Recording doesn't allocate. The percentiles are only computed in {@link #toMap()}.
+ * Not thread-safe, callers synchronize.
+ */
+public class Histogram {
+    public static final int WINDOW = 256;
+
+    private final double[] samples = new double[WINDOW];
+    private int next = 0;
+    private int size = 0;
+
+    private long count = 0;
+    private double max = 0;
+
+    public void record(double ms) {
+        samples[next] = ms;
+        next = (next + 1) % WINDOW;
+        size = Math.min(size + 1, WINDOW);
+
+        count++;
+        max = Math.max(max, ms);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /*
+     * count and max are over all samples, the rest over the last WINDOW of them.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("count", count);
+        result.put("max", max);
+        if (size == 0) {
+            return result;
+        }
+
+        double[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        double total = 0;
+        for (double sample : sorted) {
+            total += sample;
+        }
+
+        result.put("mean", total / size);
+        result.put("min", sorted[0]);
+        result.put("p50", percentile(sorted, 0.5));
+        result.put("p90", percentile(sorted, 0.9));
+        result.put("p99", percentile(sorted, 0.99));
+        return result;
+    }
+
+    private static double percentile(double[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
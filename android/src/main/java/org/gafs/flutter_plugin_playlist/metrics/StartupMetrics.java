@@ -0,0 +1,177 @@
+package org.gafs.flutter_plugin_playlist.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times how long a track takes to start, stage by stage.
+ * <p>
+ * A start begins with the command that changes the track (beginPlayback, next or
+ * previous), or, if there wasn't one, when the player is handed a data source.
+ * Each {@link Stage} records the milliseconds since then the first time it is
+ * reached, and PLAYING ends it. A new start before PLAYING abandons the old one
+ * (e.g. skipping twice quickly). A start that was asked to stay paused ends at
+ * CAN_PLAY and counts as abandoned, so PLAYING never includes the time the user
+ * took to press play.
+ * <p>
+ * Stages are reported from the main thread and, for FIRST_BYTES, from the loader thread.
+ */
+public final class StartupMetrics {
+    public enum Stage {
+        // AudioApi.playItem handed the player its data source, or switched to a preloaded one.
+        DATA_SOURCE("dataSource"),
+        // The first bytes of the current item arrived over the network. Not reached when the
+        // track is cached or preloaded, and reads for the preload player don't count.
+        FIRST_BYTES("firstBytes"),
+        PREPARED("prepared"),
+        CAN_PLAY("canPlay"),
+        PLAYING("playing");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Histogram[] histograms = new Histogram[STAGES.length];
+
+    static {
+        for (int index = 0; index < histograms.length; index++) {
+            histograms[index] = new Histogram();
+        }
+    }
+
+    private static boolean started = false;
+    private static boolean startPaused = false;
+    // Lets the loader thread skip the lock for every chunk once FIRST_BYTES is reached.
+    private static volatile boolean awaitingBytes = false;
+    // The uri handed to the player for the current start, and the data source reading it.
+    private static volatile String currentUri;
+    private static volatile Object currentSource;
+    private static long startedAt;
+    // Bit per Stage.ordinal(), for the stages the current start has reached.
+    private static int reached;
+
+    private static long startCount = 0;
+    private static long abandonedCount = 0;
+    private static long preloadedCount = 0;
+
+    private StartupMetrics() {
+    }
+
+    /*
+     * Called when a command changes the current track. A paused start ends at CAN_PLAY.
+     */
+    public static synchronized void requested(boolean paused) {
+        begin(paused);
+    }
+
+    /*
+     * Called instead of reached(DATA_SOURCE) when the player is handed `uri` to load.
+     */
+    public static synchronized void dataSource(String uri) {
+        reached(Stage.DATA_SOURCE);
+        if (started) {
+            currentSource = null;
+            currentUri = uri;
+        }
+    }
+
+    /*
+     * Called by the network data source whenever it opens `uri`. Only the source
+     * opened for the current start's uri counts towards FIRST_BYTES.
+     */
+    public static void transferStarted(Object source, String uri) {
+        if (awaitingBytes && uri != null && uri.equals(currentUri)) {
+            currentSource = source;
+        }
+    }
+
+    /*
+     * Called by the network data source for every chunk it reads.
+     */
+    public static void bytesTransferred(Object source) {
+        if (awaitingBytes && source == currentSource) {
+            reached(Stage.FIRST_BYTES);
+        }
+    }
+
+    public static synchronized void reached(Stage stage) {
+        if (!started) {
+            if (stage != Stage.DATA_SOURCE) {
+                return;
+            }
+            // The track changed without a command, e.g. when playlistcore retries an item.
+            begin(false);
+        }
+
+        int bit = 1 << stage.ordinal();
+        if ((reached & bit) != 0) {
+            return;
+        }
+        reached |= bit;
+        if (stage == Stage.FIRST_BYTES) {
+            awaitingBytes = false;
+        }
+        histograms[stage.ordinal()].record((System.nanoTime() - startedAt) / 1000000.0);
+
+        if (stage == Stage.PLAYING) {
+            end();
+        } else if (stage == Stage.CAN_PLAY && startPaused) {
+            // Ready; whenever the user presses play is not part of the start.
+            abandonedCount++;
+            end();
+        }
+    }
+
+    /*
+     * Called instead of reaching DATA_SOURCE through a fresh load when AudioApi
+     * switches to a preloaded player.
+     */
+    public static synchronized void preloaded() {
+        preloadedCount++;
+        reached(Stage.DATA_SOURCE);
+        // Its bytes were read before the start, by the preload player.
+        awaitingBytes = false;
+    }
+
+    /*
+     * Each stage's histogram is of the ms from the start of the track to that stage.
+     */
+    public static synchronized Map<String, Object> toMap() {
+        Map<String, Object> stages = new HashMap<>();
+        for (Stage stage : STAGES) {
+            stages.put(stage.key, histograms[stage.ordinal()].toMap());
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("started", startCount);
+        result.put("abandoned", abandonedCount);
+        result.put("preloaded", preloadedCount);
+        result.put("stages", stages);
+        return result;
+    }
+
+    private static void begin(boolean paused) {
+        if (started) {
+            abandonedCount++;
+        }
+        started = true;
+        startPaused = paused;
+        awaitingBytes = true;
+        currentUri = null;
+        currentSource = null;
+        startedAt = System.nanoTime();
+        reached = 0;
+        startCount++;
+    }
+
+    private static void end() {
+        started = false;
+        awaitingBytes = false;
+        currentUri = null;
+        currentSource = null;
+    }
+}
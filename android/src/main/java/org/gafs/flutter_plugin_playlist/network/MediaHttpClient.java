@@ -0,0 +1,86 @@
+package org.gafs.flutter_plugin_playlist.network;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Holds the one {@link OkHttpClient} used for both audio and artwork, so the
+ * connection pool, dispatcher and TLS sessions carry over between tracks and
+ * a track change on the same host skips the TCP and TLS handshakes.
+ * <p>
+ * Changing the configuration builds a new client for subsequent requests, audio
+ * and artwork alike, and closes the idle connections of the old one. Requests
+ * already running on the old client finish there.
+ */
+public final class MediaHttpClient {
+    private static int maxIdleConnections = 5;
+    private static long keepAliveMs = 5 * 60 * 1000;
+    private static long connectTimeoutMs = 10 * 1000;
+    private static long readTimeoutMs = 10 * 1000;
+    private static boolean http2 = true;
+
+    private static OkHttpClient client;
+
+    private MediaHttpClient() {
+    }
+
+    public static synchronized void configure(int maxIdleConnections, long keepAliveMs,
+                                              long connectTimeoutMs, long readTimeoutMs, boolean http2) {
+        // setOptions passes the settings again each time, which shouldn't cost the warm connections.
+        if (maxIdleConnections == MediaHttpClient.maxIdleConnections && keepAliveMs == MediaHttpClient.keepAliveMs
+                && connectTimeoutMs == MediaHttpClient.connectTimeoutMs && readTimeoutMs == MediaHttpClient.readTimeoutMs
+                && http2 == MediaHttpClient.http2) {
+            return;
+        }
+        MediaHttpClient.maxIdleConnections = maxIdleConnections;
+        MediaHttpClient.keepAliveMs = keepAliveMs;
+        MediaHttpClient.connectTimeoutMs = connectTimeoutMs;
+        MediaHttpClient.readTimeoutMs = readTimeoutMs;
+        MediaHttpClient.http2 = http2;
+        if (client != null) {
+            client.connectionPool().evictAll();
+            client = null;
+        }
+    }
+
+    public static synchronized int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public static synchronized long getKeepAliveMs() {
+        return keepAliveMs;
+    }
+
+    public static synchronized long getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public static synchronized long getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    public static synchronized boolean getHttp2() {
+        return http2;
+    }
+
+    public static synchronized OkHttpClient get() {
+        if (client == null) {
+            client = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+                    .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                    .protocols(http2
+                            ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                            : Collections.singletonList(Protocol.HTTP_1_1))
+                    .followRedirects(true)
+                    .followSslRedirects(true)
+                    .build();
+        }
+        return client;
+    }
+}
@@ -1,104 +1,127 @@
 package org.gafs.flutter_plugin_playlist.playlist;
 
 import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+import org.gafs.flutter_plugin_playlist.event.EventDispatcher;
+import org.gafs.flutter_plugin_playlist.metrics.StartupMetrics;
 
+import android.app.ActivityManager;
 import android.content.Context;
 import android.media.AudioManager;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.PowerManager;
 
 import com.devbrackets.android.exomedia.AudioPlayer;
+import com.devbrackets.android.exomedia.listener.OnBufferUpdateListener;
+import com.devbrackets.android.exomedia.listener.OnCompletionListener;
+import com.devbrackets.android.exomedia.listener.OnPreparedListener;
+import com.devbrackets.android.exomedia.listener.OnSeekCompletionListener;
 import com.devbrackets.android.playlistcore.manager.BasePlaylistManager;
 import com.devbrackets.android.exomedia.listener.OnErrorListener;
 
-import java.lang.ref.WeakReference;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.ArrayList;
-
+/*
+* Plays through one ExoMedia AudioPlayer at a time, but can prepare the next item
+* on a second one (see preload). When playlistcore then asks for that item, the
+* players swap instead of resetting and preparing again, which makes skips near
+* instant and leaves next to no gap between tracks.
+*
+* playlistcore always hands an item to the first player that handles it, so the
+* second player lives in here rather than as a second AudioApi.
+*/
 public class AudioApi extends BaseMediaApi {
-    private AudioPlayer audioPlayer;
+    // Don't keep a second decoder around when the system is short on memory.
+    private static final int MIN_FREE_MEMORY_MB = 64;
 
-    private ReentrantLock errorListenersLock = new ReentrantLock(true);
-    private ArrayList<WeakReference<OnErrorListener>> errorListeners = new ArrayList<>();
+    // Every error listener gets every error, whatever the others return.
+    private static final EventDispatcher.Event<OnErrorListener, Exception> ERROR = new EventDispatcher.Event<OnErrorListener, Exception>() {
+        @Override
+        public boolean dispatch(OnErrorListener listener, Exception e) {
+            listener.onError(e);
+            return false;
+        }
+    };
 
-    public AudioApi(Context context) {
-        this.audioPlayer = new AudioPlayer(context.getApplicationContext());
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Slot active;
+    // Created on the first preload, null again after releasePreload.
+    private Slot standby;
+
+    private float volumeLeft = 1f;
+    private float volumeRight = 1f;
+    private float playbackSpeed = 1f;
 
-        audioPlayer.setOnErrorListener(this);
-        audioPlayer.setOnPreparedListener(this);
-        audioPlayer.setOnCompletionListener(this);
-        audioPlayer.setOnSeekCompletionListener(this);
-        audioPlayer.setOnBufferUpdateListener(this);
+    private final EventDispatcher<OnErrorListener> errorListeners = new EventDispatcher<>();
 
-        // If you have not included the WAKE_LOCK permission in your project,
-        // the following lines have no effect.
-        int wakeMode = PowerManager.PARTIAL_WAKE_LOCK; // | PowerManager.PROXIMITY_SCREEN_OFF_WAKE_LOCK;
-        audioPlayer.setWakeMode(context, wakeMode);
-        audioPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
+    public AudioApi(Context context) {
+        this.context = context.getApplicationContext();
+        this.active = new Slot();
     }
 
     public void addErrorListener(OnErrorListener listener) {
-      errorListenersLock.lock();
-      errorListeners.add(new WeakReference<>(listener));
-      errorListenersLock.unlock();
+        errorListeners.add(listener);
+    }
+
+    public void removeErrorListener(OnErrorListener listener) {
+        errorListeners.remove(listener);
     }
 
     @Override
     public boolean onError(Exception e) {
         super.onError(e);
-
-        errorListenersLock.lock();
-        for(WeakReference<OnErrorListener> listener : errorListeners) {
-            if (listener.get() != null) {
-                listener.get().onError(e);
-            }
-        }
-        errorListenersLock.unlock();
+        errorListeners.dispatch(ERROR, e);
         return true;
     }
 
     @Override
     public boolean isPlaying() {
-        return audioPlayer.isPlaying();
+        return active.player.isPlaying();
     }
 
     @Override
     public void play() {
-        audioPlayer.start();
+        active.player.start();
     }
 
     @Override
     public void pause() {
-        audioPlayer.pause();
+        active.player.pause();
     }
 
     @Override
     public void stop() {
-        audioPlayer.stopPlayback();
+        active.player.stopPlayback();
     }
 
     @Override
     public void reset() {
-        audioPlayer.reset();
+        active.player.reset();
     }
 
     @Override
     public void release() {
-        audioPlayer.release();
+        active.player.release();
+        releasePreload();
     }
 
     @Override
     public void setVolume(float left, float right) {
-        audioPlayer.setVolume(left, right);
+        volumeLeft = left;
+        volumeRight = right;
+        active.player.setVolume(left, right);
     }
 
     @Override
     public void seekTo(long milliseconds) {
-        audioPlayer.seekTo((int)milliseconds);
+        active.player.seekTo((int)milliseconds);
     }
 
     public void setPlaybackSpeed(float speed) {
-        audioPlayer.setPlaybackSpeed(speed);
+        playbackSpeed = speed;
+        active.player.setPlaybackSpeed(speed);
     }
 
     @Override
@@ -113,28 +136,193 @@ public class AudioApi extends BaseMediaApi {
 
     @Override
     public void playItem(AudioTrack item) {
+        String uri = getUri(item);
+
+        if (standby != null && uri.equals(standby.uri)) {
+            // The item was preloaded, take over that player.
+            StartupMetrics.preloaded();
+            Slot previous = active;
+            active = standby;
+            standby = previous;
+            standby.clear();
+
+            active.player.setVolume(volumeLeft, volumeRight);
+            active.player.setPlaybackSpeed(playbackSpeed);
+            prepared = active.prepared;
+            bufferPercent = active.bufferPercent;
+
+            if (active.prepared) {
+                // playlistcore expects onPrepared after playItem returns, as if it was prepared just now.
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPrepared();
+                    }
+                });
+            }
+            return;
+        }
+
         try {
             prepared = false;
             bufferPercent = 0;
-            audioPlayer.setDataSource(Uri.parse(item.getDownloaded() ? item.getDownloadedMediaUri() : item.getMediaUrl()));
-            audioPlayer.prepareAsync();
+            StartupMetrics.dataSource(uri);
+            active.load(uri);
         } catch (Exception e) {
             // Purposefully left blank
         }
     }
 
+    /*
+     * Prepares the item on the standby player so that playItem can switch to it
+     * immediately. Streams are never preloaded, and neither is anything while
+     * the device is low on memory.
+     */
+    public void preload(AudioTrack item) {
+        if (item == null || item.getIsStream() || isLowOnMemory()) {
+            releasePreload();
+            return;
+        }
+
+        String uri = getUri(item);
+        if (uri.equals(active.uri) || (standby != null && uri.equals(standby.uri))) {
+            return;
+        }
+
+        if (standby == null) {
+            standby = new Slot();
+        }
+        try {
+            standby.load(uri);
+        } catch (Exception e) {
+            standby.clear();
+        }
+    }
+
+    /*
+     * Frees the standby player and whatever it has buffered.
+     */
+    public void releasePreload() {
+        if (standby == null) {
+            return;
+        }
+        standby.player.release();
+        standby = null;
+    }
+
     @Override
     public long getCurrentPosition() {
-        return prepared ? audioPlayer.getCurrentPosition() : 0;
+        return prepared ? active.player.getCurrentPosition() : 0;
     }
 
     @Override
     public long getDuration() {
-        return prepared ? audioPlayer.getDuration() : 0;
+        return prepared ? active.player.getDuration() : 0;
     }
 
     @Override
     public int getBufferedPercent() {
         return bufferPercent;
     }
+
+    private static String getUri(AudioTrack item) {
+        return item.getDownloaded() ? item.getDownloadedMediaUri() : item.getMediaUrl();
+    }
+
+    private boolean isLowOnMemory() {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return true;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && activityManager.isLowRamDevice()) {
+            return true;
+        }
+
+        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(memoryInfo);
+        return memoryInfo.lowMemory || memoryInfo.availMem - memoryInfo.threshold < MIN_FREE_MEMORY_MB * 1024L * 1024L;
+    }
+
+    /*
+     * One AudioPlayer and what it has loaded. Its callbacks only reach
+     * playlistcore (through BaseMediaApi) while it is the active one.
+     */
+    private class Slot implements OnPreparedListener, OnCompletionListener, OnErrorListener,
+            OnSeekCompletionListener, OnBufferUpdateListener {
+        final AudioPlayer player;
+        String uri;
+        boolean prepared;
+        int bufferPercent;
+
+        Slot() {
+            player = new AudioPlayer(context);
+
+            player.setOnErrorListener(this);
+            player.setOnPreparedListener(this);
+            player.setOnCompletionListener(this);
+            player.setOnSeekCompletionListener(this);
+            player.setOnBufferUpdateListener(this);
+
+            // If you have not included the WAKE_LOCK permission in your project,
+            // the following lines have no effect.
+            int wakeMode = PowerManager.PARTIAL_WAKE_LOCK; // | PowerManager.PROXIMITY_SCREEN_OFF_WAKE_LOCK;
+            player.setWakeMode(context, wakeMode);
+            player.setAudioStreamType(AudioManager.STREAM_MUSIC);
+        }
+
+        void load(String uri) {
+            this.uri = uri;
+            prepared = false;
+            bufferPercent = 0;
+            player.setDataSource(Uri.parse(uri));
+            player.prepareAsync();
+        }
+
+        void clear() {
+            uri = null;
+            prepared = false;
+            bufferPercent = 0;
+            player.reset();
+        }
+
+        @Override
+        public void onPrepared() {
+            prepared = true;
+            if (this == active) {
+                AudioApi.this.onPrepared();
+            }
+        }
+
+        @Override
+        public void onCompletion() {
+            if (this == active) {
+                AudioApi.this.onCompletion();
+            }
+        }
+
+        @Override
+        public boolean onError(Exception e) {
+            if (this == active) {
+                return AudioApi.this.onError(e);
+            }
+            // A failed preload just means the item gets loaded normally when it's played.
+            clear();
+            return true;
+        }
+
+        @Override
+        public void onSeekComplete() {
+            if (this == active) {
+                AudioApi.this.onSeekComplete();
+            }
+        }
+
+        @Override
+        public void onBufferingUpdate(int percent) {
+            bufferPercent = percent;
+            if (this == active) {
+                AudioApi.this.onBufferingUpdate(percent);
+            }
+        }
+    }
 }
@@ -27,6 +27,7 @@ public class AudioPlaylistHandler<I extends PlaylistItem, M extends BasePlaylist
 
     private static final String TAG = "AudioPlaylistHandler";
     private boolean didSeekCatchup = false;
+    private boolean seeking = false;
 
     AudioPlaylistHandler(
             Context context,
@@ -41,15 +42,33 @@ public class AudioPlaylistHandler<I extends PlaylistItem, M extends BasePlaylist
     ) {
         super(context, serviceClass, playlistManager, imageProvider, notificationProvider,
                 mediaSessionProvider, mediaControlsProvider, audioFocusProvider, listener);
-        // Lmao this entire class exists for the sake of this one line
-        // The default value is 30fps (e.g 33ms), which would overwhelm the Cordova webview with messages
-        // Ideally we could make this configurable.
+        // The default value is 30fps (e.g 33ms), which would overwhelm the Flutter channel with messages.
+        // The actual rate is picked in updateProgressPoll from the PlaylistManager settings.
         getMediaProgressPoll().setProgressPollDelay(1000);
     }
 
+    /*
+     * (Re)starts the progress poll at the rate configured for the current state,
+     * or stops it when that rate is 0 or nobody is listening for progress.
+     * The poll is always stopped first: starting it while it was already running
+     * is what stacked up repeat cycles when play was called more than once.
+     */
+    public void updateProgressPoll() {
+        MediaPlayerApi<I> mediaPlayer = getCurrentMediaPlayer();
+        boolean playing = mediaPlayer != null && mediaPlayer.isPlaying();
+        long delay = ((PlaylistManager) getPlaylistManager()).getProgressPollDelay(seeking, playing);
+
+        getMediaProgressPoll().stop();
+        if (delay > 0) {
+            getMediaProgressPoll().setProgressPollDelay(delay);
+            getMediaProgressPoll().start();
+        }
+    }
+
     @Override
     public void onPrepared(MediaPlayerApi<I> mediaPlayer) {
         super.onPrepared(mediaPlayer);
+        updateProgressPoll();
     }
 
     @Override
@@ -93,6 +112,15 @@ public class AudioPlaylistHandler<I extends PlaylistItem, M extends BasePlaylist
         getCurrentMediaProgress().update(mediaPlayer.getCurrentPosition(), mediaPlayer.getBufferedPercent(), mediaPlayer.getDuration());
         super.onSeekComplete(mediaPlayer);
         didSeekCatchup = false;
+        seeking = false;
+        updateProgressPoll();
+    }
+
+    @Override
+    public void seek(long positionMillis) {
+        seeking = true;
+        super.seek(positionMillis);
+        updateProgressPoll();
     }
 
     @Override
@@ -123,6 +151,7 @@ public class AudioPlaylistHandler<I extends PlaylistItem, M extends BasePlaylist
         didSeekCatchup = true;
         setPlayingBeforeSeek(true);
         super.play();
+        updateProgressPoll();
     }
 
 
@@ -144,6 +173,7 @@ public class AudioPlaylistHandler<I extends PlaylistItem, M extends BasePlaylist
             }
         }
         didSeekCatchup = true;
+        updateProgressPoll();
     }
 
     public static class Builder<I extends PlaylistItem, M extends BasePlaylistManager<I>> {
@@ -10,6 +10,7 @@ import com.devbrackets.android.playlistcore.listener.MediaStatusListener;
 import org.jetbrains.annotations.NotNull;
 
 import org.gafs.flutter_plugin_playlist.data.AudioTrack;
+import org.gafs.flutter_plugin_playlist.metrics.StartupMetrics;
 
 public abstract class BaseMediaApi implements MediaPlayerApi<AudioTrack>,
         OnPreparedListener,
@@ -47,6 +48,7 @@ public abstract class BaseMediaApi implements MediaPlayerApi<AudioTrack>,
     @Override
     public void onPrepared() {
         prepared = true;
+        StartupMetrics.reached(StartupMetrics.Stage.PREPARED);
 
         if (mediaStatusListener != null) {
             mediaStatusListener.onPrepared(this);
@@ -0,0 +1,100 @@
+package org.gafs.flutter_plugin_playlist.service;
+
+import android.content.Context;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+
+import org.gafs.flutter_plugin_playlist.network.MediaHttpClient;
+
+import java.io.InputStream;
+
+import okhttp3.Call;
+import okhttp3.Request;
+
+/*
+* The url of a track's artwork, as the model Glide loads it from.
+*
+* Artwork is fetched through the same OkHttp client as the audio, so they share
+* connections. Glide's registry belongs to the app, though, and replacing its
+* GlideUrl loader would change how the app loads its own images. So the plugin
+* asks for an ArtworkUrl instead, a type nothing else uses, and only adds a
+* loader for that.
+*/
+final class ArtworkUrl {
+    // The Glide the loader was added to; Glide can be torn down and built again.
+    private static Glide registeredWith;
+
+    final String url;
+
+    ArtworkUrl(String url) {
+        this.url = url;
+    }
+
+    static synchronized void register(Context context) {
+        Glide glide = Glide.get(context.getApplicationContext());
+        if (glide == registeredWith) {
+            return;
+        }
+        glide.getRegistry().append(ArtworkUrl.class, InputStream.class, new LoaderFactory());
+        registeredWith = glide;
+    }
+
+    // Glide keys its memory cache on the model, so equal urls have to be equal models.
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ArtworkUrl && url.equals(((ArtworkUrl) other).url);
+    }
+
+    @Override
+    public int hashCode() {
+        return url.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+    /*
+     * Glide keeps the loader for as long as it lives, so the client is looked up per
+     * request, and artwork moves to a new one along with the audio after
+     * MediaHttpClient.configure.
+     */
+    private static final Call.Factory CURRENT_CLIENT = new Call.Factory() {
+        @Override
+        public Call newCall(Request request) {
+            return MediaHttpClient.get().newCall(request);
+        }
+    };
+
+    private static class Loader implements ModelLoader<ArtworkUrl, InputStream> {
+        private final OkHttpUrlLoader okHttpLoader = new OkHttpUrlLoader(CURRENT_CLIENT);
+
+        @Override
+        public LoadData<InputStream> buildLoadData(ArtworkUrl model, int width, int height, Options options) {
+            return okHttpLoader.buildLoadData(new GlideUrl(model.url), width, height, options);
+        }
+
+        @Override
+        public boolean handles(ArtworkUrl model) {
+            return true;
+        }
+    }
+
+    private static class LoaderFactory implements ModelLoaderFactory<ArtworkUrl, InputStream> {
+        @Override
+        public ModelLoader<ArtworkUrl, InputStream> build(MultiModelLoaderFactory multiFactory) {
+            return new Loader();
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
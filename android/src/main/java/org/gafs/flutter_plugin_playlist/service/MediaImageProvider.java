@@ -1,8 +1,11 @@
 package org.gafs.flutter_plugin_playlist.service;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.RequestManager;
@@ -24,31 +27,60 @@ public class MediaImageProvider implements ImageProvider<AudioTrack> {
         void onImageUpdated();
     }
 
+    // Albums tend to repeat, so keep the last few decoded artworks around.
+    private static final int ARTWORK_CACHE_ENTRIES = 4;
+    private static final int MAX_ARTWORK_SIZE = 1024;
+
     private RequestManager glide;
     private OnImageUpdatedListener listener;
 
     private FakeR fakeR;
 
-    private NotificationImageTarget notificationImageTarget = new NotificationImageTarget();
-    private RemoteViewImageTarget remoteViewImageTarget = new RemoteViewImageTarget();
+    private int notificationImageSize;
+    private int artworkImageSize;
 
     private Bitmap defaultNotificationImage;
     private Bitmap defaultArtworkImage;
 
     private Bitmap notificationImage;
     private Bitmap artworkImage;
+    // What notificationImage and artworkImage come from, null for the defaults.
+    private Artwork displayed;
+
+    private String currentUrl;
+    private ArtworkTarget pendingTarget;
+
+    private final LruCache<String, Artwork> artworkCache = new LruCache<String, Artwork>(ARTWORK_CACHE_ENTRIES) {
+        @Override
+        protected void entryRemoved(boolean evicted, String url, Artwork oldValue, Artwork newValue) {
+            // Hands the bitmap back to Glide's pool, or if it is still on screen, once it no longer is (see show).
+            if (oldValue == displayed) {
+                oldValue.removed = true;
+            } else {
+                glide.clear(oldValue.target);
+            }
+        }
+    };
 
     private int notificationIconId = 0;
 
     MediaImageProvider(Context context, OnImageUpdatedListener listener) {
+        // Artwork is loaded through the same OkHttp client as the audio, see ArtworkUrl.
+        ArtworkUrl.register(context);
         glide = Glide.with(context.getApplicationContext());
         fakeR = new FakeR(context.getApplicationContext());
         this.listener = listener;
 
+        Resources resources = context.getResources();
+        notificationImageSize = Math.max(
+                resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width),
+                resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height));
+        artworkImageSize = Math.min(resources.getDisplayMetrics().widthPixels, MAX_ARTWORK_SIZE);
+
         // R.drawable.img_playlist_notif_default
         // R.drawable.img_playlist_artwork_default
-        defaultNotificationImage = BitmapFactory.decodeResource(context.getResources(), fakeR.getId("drawable", "img_playlist_notif_default"));
-        defaultArtworkImage = BitmapFactory.decodeResource(context.getResources(), fakeR.getId("drawable", "img_playlist_artwork_default"));
+        defaultNotificationImage = decodeResource(resources, fakeR.getId("drawable", "img_playlist_notif_default"), notificationImageSize);
+        defaultArtworkImage = decodeResource(resources, fakeR.getId("drawable", "img_playlist_artwork_default"), artworkImageSize);
     }
 
     @Override
@@ -71,10 +103,46 @@ public class MediaImageProvider implements ImageProvider<AudioTrack> {
         return artworkImage != null ? artworkImage : defaultArtworkImage;
     }
 
+    /*
+     * The notification and lock screen images come from the same url (getArtworkUrl is
+     * getThumbnailUrl), so there is one load per url, decoded at the lock screen size, and
+     * the notification image is scaled down from that. Tracks sharing artwork don't load
+     * anything at all.
+     */
     @Override
     public void updateImages(AudioTrack playlistItem) {
-        glide.asBitmap().load(playlistItem.getThumbnailUrl()).into(notificationImageTarget);
-        glide.asBitmap().load(playlistItem.getArtworkUrl()).into(remoteViewImageTarget);
+        String url = playlistItem.getArtworkUrl();
+        if (url == null ? currentUrl == null : url.equals(currentUrl)) {
+            return;
+        }
+        currentUrl = url;
+
+        if (pendingTarget != null) {
+            glide.clear(pendingTarget);
+            pendingTarget = null;
+        }
+
+        Artwork cached = url != null ? artworkCache.get(url) : null;
+        if (url == null || cached != null) {
+            show(cached);
+            return;
+        }
+
+        pendingTarget = new ArtworkTarget(url, artworkImageSize);
+        glide.asBitmap().load(new ArtworkUrl(url)).into(pendingTarget);
+    }
+
+    private void show(Artwork artwork) {
+        Artwork previous = displayed;
+        displayed = artwork;
+        artworkImage = artwork != null ? artwork.artwork : null;
+        notificationImage = artwork != null ? artwork.notification : null;
+        listener.onImageUpdated();
+
+        // Left the cache while it was on screen, and nothing else holds it now.
+        if (previous != null && previous != artwork && previous.removed) {
+            glide.clear(previous.target);
+        }
     }
 
     private int getMipmapIcon() {
@@ -88,31 +156,78 @@ public class MediaImageProvider implements ImageProvider<AudioTrack> {
         return notificationIconId;
     }
 
-    /**
-     * A class used to listen to the loading of the large notification images and perform
-     * the correct functionality to update the notification once it is loaded.
-     * <p>
-     * <b>NOTE:</b> This is a Glide Image loader class
-     */
-    private class NotificationImageTarget extends SimpleTarget<Bitmap> {
-        @Override
-        public void onResourceReady(Bitmap resource, Transition<? super Bitmap> transition) {
-            notificationImage = resource;
-            listener.onImageUpdated();
+    // Decodes a resource no larger than needed for the given size, instead of at full resolution.
+    private static Bitmap decodeResource(Resources resources, int id, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, id, options);
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= size && options.outHeight / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeResource(resources, id, options);
+    }
+
+    private static class Artwork {
+        final ArtworkTarget target;
+        final Bitmap artwork;
+        final Bitmap notification;
+        // Dropped from artworkCache while displayed, so show releases it instead.
+        boolean removed;
+
+        Artwork(ArtworkTarget target, Bitmap artwork, Bitmap notification) {
+            this.target = target;
+            this.artwork = artwork;
+            this.notification = notification;
         }
     }
 
     /**
-     * A class used to listen to the loading of the large lock screen images and perform
-     * the correct functionality to update the artwork once it is loaded.
+     * A class used to listen to the loading of the artwork and perform the correct
+     * functionality to update both the notification and the lock screen once it is loaded.
      * <p>
      * <b>NOTE:</b> This is a Glide Image loader class
      */
-    private class RemoteViewImageTarget extends SimpleTarget<Bitmap> {
+    private class ArtworkTarget extends SimpleTarget<Bitmap> {
+        private final String url;
+
+        ArtworkTarget(String url, int size) {
+            super(size, size);
+            this.url = url;
+        }
+
         @Override
         public void onResourceReady(Bitmap resource, Transition<? super Bitmap> transition) {
-            artworkImage = resource;
-            listener.onImageUpdated();
+            if (pendingTarget != this) {
+                return;
+            }
+            pendingTarget = null;
+
+            Bitmap notification = resource;
+            if (resource.getWidth() > notificationImageSize || resource.getHeight() > notificationImageSize) {
+                float scale = (float) notificationImageSize / Math.max(resource.getWidth(), resource.getHeight());
+                notification = Bitmap.createScaledBitmap(resource,
+                        Math.max(1, Math.round(resource.getWidth() * scale)),
+                        Math.max(1, Math.round(resource.getHeight() * scale)),
+                        true);
+            }
+
+            Artwork artwork = new Artwork(this, resource, notification);
+            artworkCache.put(url, artwork);
+            show(artwork);
+        }
+
+        @Override
+        public void onLoadFailed(Drawable errorDrawable) {
+            if (pendingTarget != this) {
+                return;
+            }
+            pendingTarget = null;
+            show(null);
         }
     }
 }
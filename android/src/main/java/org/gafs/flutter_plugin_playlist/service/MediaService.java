@@ -26,6 +26,22 @@ public class MediaService extends BasePlaylistService<AudioTrack, PlaylistManage
         getPlaylistManager().onMediaServiceInit(true);
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // Drop the preloaded next item when memory runs low, but not just because the UI was hidden.
+        if (level == TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_MODERATE) {
+            getPlaylistManager().onLowMemory();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        getPlaylistManager().onLowMemory();
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -102,13 +102,39 @@ class RmxAudioStatusMessage {
   /// raised once for every track in the collection.
   static const RMXSTATUS_ITEM_ADDED = 110;
 
+  /// (Android only): Raised instead of RMXSTATUS_ITEM_ADDED when options.bulkItemEvents is set.
+  /// Raised once per setPlaylistItems, addAllItems or loadPlaylistItems chunk; the value contains
+  /// the index of the first added track, the count, and the trackIds in playlist order.
+  static const RMXSTATUS_ITEMS_ADDED = 111;
+
   /// An item has been removed from the playlist. For the removeItems and clearAllItems methods, this status is
   /// raised once for every track that was removed.
   static const RMXSTATUS_ITEM_REMOVED = 115;
 
+  /// (Android only): Raised instead of RMXSTATUS_ITEM_REMOVED for removeItems when options.bulkItemEvents
+  /// is set. The value contains the count and the trackIds of the removed tracks.
+  static const RMXSTATUS_ITEMS_REMOVED = 116;
+
   /// All items have been removed from the playlist
   static const RMXSTATUS_PLAYLIST_CLEARED = 120;
 
+  /// (Android only): Raised by initialize when options.persistQueue was set and the plugin restored
+  /// the queue stored by a previous run of the app. The value contains the count, the trackIds in
+  /// playlist order, currentIndex, currentItem and currentPosition (seconds). Calling play() resumes
+  /// the current item from that position.
+  static const RMXSTATUS_PLAYLIST_RESTORED = 125;
+
+  /// (Android only): Reports how much of a track started with downloadItems has been stored.
+  /// The value contains downloadedBytes, totalBytes (-1 if unknown) and percent.
+  static const RMXSTATUS_DOWNLOAD_PROGRESS = 130;
+
+  /// (Android only): A track has been fully downloaded and will now play without network access.
+  /// The value contains the local mediaUri.
+  static const RMXSTATUS_DOWNLOAD_COMPLETED = 135;
+
+  /// (Android only): A download has failed. Calling downloadItems again resumes it.
+  static const RMXSTATUS_DOWNLOAD_FAILED = 140;
+
   /// Just for testing.. you don't need this and in fact can never receive it, the plugin is destroyed before it can be raised.
   static const RMXSTATUS_VIEWDISAPPEAR = 200;
 }
@@ -226,12 +252,12 @@ const RmxAudioStatusMessageDescriptions = [
   null,
   null,
   'Track Added',
-  null,
+  'Tracks Added',
   null,
   null,
   null,
   'Track Removed',
-  null,
+  'Tracks Removed',
   null,
   null,
   null,
@@ -240,22 +266,22 @@ const RmxAudioStatusMessageDescriptions = [
   null,
   null,
   null,
+  'Playlist Restored',
   null,
   null,
   null,
   null,
+  'Download Progress',
   null,
   null,
   null,
   null,
+  'Download Completed',
   null,
   null,
   null,
   null,
-  null,
-  null,
-  null,
-  null,
+  'Download Failed',
   null,
   null,
   null,
@@ -1,6 +1,7 @@
 library flutter_plugin_playlist;
 
 import 'dart:async';
+import 'dart:convert';
 import 'package:flutter/services.dart';
 import 'dart:math' as math;
 
@@ -22,6 +22,7 @@ class AudioPlayerEventHandlers {
 /// Options governing the overall behavior of the audio player plugin
 class AudioPlayerOptions {
   /// Should the plugin's javascript dump the status message stream to the javascript console?
+  /// On Android this also logs the arguments of every call to the native side.
   final bool verbose;
 
   /// If true, when pausing a live stream, play will continue from the LIVE POSITION (e.g. the stream
@@ -32,7 +33,112 @@ class AudioPlayerOptions {
   /// Default is true.
   final bool resetStreamOnPause;
 
-  const AudioPlayerOptions({this.resetStreamOnPause, this.verbose});
+  /// (Android only) Number of milliseconds to collect status messages for before sending them
+  /// to Dart in a single platform channel call, e.g. 16 for roughly one frame or 50.
+  /// Messages are still delivered to on('status') one at a time and in order.
+  ///
+  /// Default is 0, which sends every message as soon as it is raised.
+  final int statusBatchWindow;
+
+  /// (Android only) 'binary' sends the high-rate player status events (buffering, position, etc)
+  /// as compact binary records instead of maps. The values you receive through on('status')
+  /// are the same either way.
+  ///
+  /// Default is 'map'.
+  final String statusFormat;
+
+  /// (Android only) When true, the frequent position and buffering events only carry the
+  /// status fields that changed since the last one. The plugin fills in the rest, so the
+  /// values you receive through on('status') are still complete. Has no effect with
+  /// statusFormat 'binary'.
+  ///
+  /// Default is false.
+  final bool statusDelta;
+
+  /// (Android only) When true, setPlaylistItems, addAllItems and removeItems raise a single
+  /// RMXSTATUS_ITEMS_ADDED or RMXSTATUS_ITEMS_REMOVED event with the ids of all the affected tracks,
+  /// instead of one RMXSTATUS_ITEM_ADDED or RMXSTATUS_ITEM_REMOVED per track.
+  ///
+  /// Default is false.
+  final bool bulkItemEvents;
+
+  /// (Android only) When true, the queue, the current item and its playback position are kept on disk
+  /// and restored when the app is started again, reported by RMXSTATUS_PLAYLIST_RESTORED.
+  /// Setting it to false deletes the stored queue.
+  ///
+  /// Default is false.
+  final bool persistQueue;
+
+  /// (Android only) When true, the next (non-stream) track is prepared on a second player once the
+  /// current one is fully buffered, so skipping to it or finishing the current track starts it without a gap.
+  /// The second player and its buffers cost memory, and it is skipped while the device is low on memory.
+  ///
+  /// Default is false.
+  final bool preloadNext;
+
+  /// (Android only) How often, in milliseconds, the playback position is polled and reported
+  /// while playing, seeking, paused, and playing with the app in the background.
+  /// 0 turns polling off in that state.
+  ///
+  /// Defaults are 1000, 1000, 0 and 1000.
+  final int progressPollPlaying;
+  final int progressPollSeeking;
+  final int progressPollPaused;
+  final int progressPollBackground;
+
+  /// (Android only) Settings for the on-disk media cache: its maximum size in bytes
+  /// (default 100MB), an absolute directory path (default is a folder in the app's cache dir),
+  /// and the eviction policy, 'lru' (default) or 'none'.
+  /// These only take effect before the first track is loaded; the cache is kept until the app exits.
+  final int cacheMaxBytes;
+  final String cacheDirectory;
+  final String cacheEvictor;
+
+  /// (Android only) Settings for the HTTP client shared by audio and artwork downloads:
+  /// idle connections kept in the pool (default 5), how long they are kept alive (default 300000 ms),
+  /// connect and read timeouts (default 10000 ms each), and whether HTTP/2 is allowed (default true).
+  final int httpMaxIdleConnections;
+  final int httpKeepAlive;
+  final int httpConnectTimeout;
+  final int httpReadTimeout;
+  final bool httpEnableHttp2;
+
+  /// (Android only) Number of upcoming (non-stream) tracks to start loading into the cache
+  /// once the current track is fully buffered, and how many bytes of each to load.
+  ///
+  /// Defaults are 0 (disabled) and 524288 bytes.
+  final int prefetchCount;
+  final int prefetchBytes;
+
+  /// (Android only) How many downloads started with downloadItems may run at the same time.
+  ///
+  /// Default is 2.
+  final int downloadConcurrency;
+
+  const AudioPlayerOptions(
+      {this.resetStreamOnPause,
+      this.verbose,
+      this.statusBatchWindow,
+      this.statusFormat,
+      this.statusDelta,
+      this.bulkItemEvents,
+      this.persistQueue,
+      this.preloadNext,
+      this.progressPollPlaying,
+      this.progressPollSeeking,
+      this.progressPollPaused,
+      this.progressPollBackground,
+      this.cacheMaxBytes,
+      this.cacheDirectory,
+      this.cacheEvictor,
+      this.httpMaxIdleConnections,
+      this.httpKeepAlive,
+      this.httpConnectTimeout,
+      this.httpReadTimeout,
+      this.httpEnableHttp2,
+      this.prefetchCount,
+      this.prefetchBytes,
+      this.downloadConcurrency});
 
   Map<String, dynamic> toJson() {
     Map<String, dynamic> json = new Map();
@@ -40,6 +146,35 @@ class AudioPlayerOptions {
     if (resetStreamOnPause != null)
       json['resetStreamOnPause'] = resetStreamOnPause;
     if (verbose != null) json['verbose'] = verbose;
+    if (statusBatchWindow != null)
+      json['statusBatchWindow'] = statusBatchWindow;
+    if (statusFormat != null) json['statusFormat'] = statusFormat;
+    if (statusDelta != null) json['statusDelta'] = statusDelta;
+    if (bulkItemEvents != null) json['bulkItemEvents'] = bulkItemEvents;
+    if (persistQueue != null) json['persistQueue'] = persistQueue;
+    if (preloadNext != null) json['preloadNext'] = preloadNext;
+    if (progressPollPlaying != null)
+      json['progressPollPlaying'] = progressPollPlaying;
+    if (progressPollSeeking != null)
+      json['progressPollSeeking'] = progressPollSeeking;
+    if (progressPollPaused != null)
+      json['progressPollPaused'] = progressPollPaused;
+    if (progressPollBackground != null)
+      json['progressPollBackground'] = progressPollBackground;
+    if (cacheMaxBytes != null) json['cacheMaxBytes'] = cacheMaxBytes;
+    if (cacheDirectory != null) json['cacheDirectory'] = cacheDirectory;
+    if (cacheEvictor != null) json['cacheEvictor'] = cacheEvictor;
+    if (httpMaxIdleConnections != null)
+      json['httpMaxIdleConnections'] = httpMaxIdleConnections;
+    if (httpKeepAlive != null) json['httpKeepAlive'] = httpKeepAlive;
+    if (httpConnectTimeout != null)
+      json['httpConnectTimeout'] = httpConnectTimeout;
+    if (httpReadTimeout != null) json['httpReadTimeout'] = httpReadTimeout;
+    if (httpEnableHttp2 != null) json['httpEnableHttp2'] = httpEnableHttp2;
+    if (prefetchCount != null) json['prefetchCount'] = prefetchCount;
+    if (prefetchBytes != null) json['prefetchBytes'] = prefetchBytes;
+    if (downloadConcurrency != null)
+      json['downloadConcurrency'] = downloadConcurrency;
 
     return json;
   }
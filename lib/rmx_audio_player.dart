@@ -15,10 +15,33 @@ final itemStatusChangeTypes = [
 
 const message = 'CORDOVA RMXAUDIOPLAYER: Error storing message channel:';
 
+/// State codes used by the binary status records, see StatusEncoder.java.
+const binaryStatusStates = [
+  'unknown',
+  'stopped',
+  'error',
+  'seeking',
+  'loading',
+  'playing',
+  'paused',
+];
+
 class RmxAudioPlayer {
   static const MethodChannel _channel =
       const MethodChannel('flutter_plugin_playlist');
 
+  static const BasicMessageChannel<ByteData> _statusChannel =
+      const BasicMessageChannel('flutter_plugin_playlist/status', BinaryCodec());
+
+  /// Track ids interned by the native side when options.statusFormat is 'binary'.
+  final Map<int, String> _binaryTrackIds = new Map();
+
+  /// The last complete player status received, which options.statusDelta updates are merged into.
+  Map<dynamic, dynamic> _lastPlayerStatus;
+
+  /// Identifies the most recent loadPlaylistItems call, so an older one stops sending chunks.
+  int _playlistLoadId = 0;
+
   static Future<String> get platformVersion async {
     final String version = await _channel.invokeMethod('getPlatformVersion');
     return version;
@@ -113,19 +136,105 @@ class RmxAudioPlayer {
     // better or worse, we got an answer back from native, so we resolve.
     if (call.method == 'status') {
       return this._onStatus(call.arguments['trackId'],
-          call.arguments['msgType'], call.arguments['value']);
+          call.arguments['msgType'], _expandStatus(call.arguments['value']));
+    } else if (call.method == 'statusBatch') {
+      // Sent instead of 'status' when options.statusBatchWindow is set; same messages, in order.
+      return Future.forEach(
+          call.arguments,
+          (status) => this._onStatus(status['trackId'], status['msgType'],
+              _expandStatus(status['value'])));
     } else {
       print('Unknown audio player onStatus message:' + call.method);
       return Future.value();
     }
   }
 
+  /// With options.statusDelta, position and buffering values only carry the fields that changed
+  /// and are marked with 'delta'. They are merged into the last complete value for the same track,
+  /// so on('status') always receives complete values.
+  dynamic _expandStatus(dynamic value) {
+    if (value is! Map || value['trackId'] == null) {
+      return value;
+    }
+
+    if (value['delta'] == true) {
+      if (_lastPlayerStatus == null ||
+          _lastPlayerStatus['trackId'] != value['trackId']) {
+        return value;
+      }
+      _lastPlayerStatus = new Map.from(_lastPlayerStatus)
+        ..addAll(value)
+        ..remove('delta');
+      return _lastPlayerStatus;
+    }
+
+    if (value.containsKey('currentPosition')) {
+      _lastPlayerStatus = value;
+    }
+    return value;
+  }
+
+  /// Decodes the records sent when options.statusFormat is 'binary' into the same
+  /// status values the map format produces. The layout is documented in StatusEncoder.java.
+  Future<ByteData> _onNativeStatusRecord(ByteData data) async {
+    int offset = 0;
+    while (offset < data.lengthInBytes) {
+      int recordType = data.getUint8(offset);
+      offset += 1;
+
+      if (recordType == 1) {
+        int handle = data.getInt32(offset);
+        int length = data.getInt32(offset + 4);
+        offset += 8;
+        this._binaryTrackIds[handle] = utf8.decode(
+            data.buffer.asUint8List(data.offsetInBytes + offset, length));
+        offset += length;
+      } else if (recordType == 2) {
+        int msgType = data.getInt32(offset);
+        int handle = data.getInt32(offset + 4);
+        int state = data.getUint8(offset + 8);
+        bool isStream = data.getUint8(offset + 9) != 0;
+        int currentIndex = data.getInt32(offset + 10);
+        int position = data.getInt64(offset + 14);
+        int duration = data.getInt64(offset + 22);
+        int bufferPercent = data.getInt32(offset + 30);
+        double bufferPercentFloat = data.getFloat32(offset + 34);
+        offset += 38;
+
+        String trackId = handle >= 0 ? this._binaryTrackIds[handle] : '';
+        // Complete statuses, but they are still the baseline later deltas merge into.
+        await this._onStatus(trackId, msgType, _expandStatus({
+          'trackId': trackId,
+          'isStream': isStream,
+          'currentIndex': currentIndex,
+          'status': state < binaryStatusStates.length
+              ? binaryStatusStates[state]
+              : 'unknown',
+          'currentPosition': position / 1000.0,
+          'duration': duration / 1000.0,
+          'playbackPercent': duration > 0 ? (position / duration) * 100.0 : 0,
+          'bufferPercent': bufferPercent,
+          'bufferStart': 0.0,
+          'bufferEnd': (bufferPercentFloat * duration) / 1000.0,
+        }));
+      } else {
+        print('Unknown audio player status record type: $recordType');
+        break;
+      }
+    }
+    return null;
+  }
+
   Future<dynamic> _exec(String method, [dynamic args]) {
     return _channel.invokeMethod(method, args);
   }
 
   Future<bool> initialize() async {
+    // The native side starts its status streams over as well.
+    _binaryTrackIds.clear();
+    _lastPlayerStatus = null;
     _channel.setMethodCallHandler((call) => _onNativeStatus(call));
+    _statusChannel.setMessageHandler((data) => _onNativeStatusRecord(data));
 
     try {
       await _exec('initialize');
@@ -145,6 +254,10 @@ class RmxAudioPlayer {
   Future<dynamic> setOptions(AudioPlayerOptions options) {
     this.options = new AudioPlayerOptions(
       verbose: options.verbose ?? this.options.verbose,
+      statusBatchWindow:
+          options.statusBatchWindow ?? this.options.statusBatchWindow,
+      statusFormat: options.statusFormat ?? this.options.statusFormat,
+      statusDelta: options.statusDelta ?? this.options.statusDelta,
     );
     return _exec('setOptions', options.toJson());
   }
@@ -163,6 +276,50 @@ class RmxAudioPlayer {
         {'items': this._validateTracks(items), 'options': options?.toJson()});
   }
 
+  /// (Android only) Sets the entire list of tracks like setPlaylistItems, but takes them
+  /// as a stream of chunks, e.g. pages from your API or a long list split into groups of a few hundred.
+  /// The first chunk replaces the playlist and starts loading its first track right away (options
+  /// apply to it, so options.playFromId must be in the first chunk). Every later chunk is appended
+  /// without interrupting playback, so the time to first audio does not depend on the playlist length.
+  ///
+  /// Calling this, setPlaylistItems or clearAllItems again stops a load that is still running.
+  /// Returns the number of tracks sent.
+  Future<int> loadPlaylistItems(Stream<List<AudioTrack>> chunks,
+      {PlaylistItemOptions options}) async {
+    int loadId = ++this._playlistLoadId;
+    bool first = true;
+    int count = 0;
+
+    await for (List<AudioTrack> chunk in chunks) {
+      if (loadId != this._playlistLoadId) {
+        break;
+      }
+
+      if (first) {
+        await _exec('setPlaylistItems', {
+          'items': this._validateTracks(chunk),
+          'options': options?.toJson(),
+          'loadId': loadId,
+        });
+        first = false;
+      } else {
+        bool appended = await _exec('appendPlaylistItems', {
+          'items': this._validateTracks(chunk),
+          'loadId': loadId,
+        });
+        if (appended != true) {
+          break;
+        }
+      }
+      count += chunk.length;
+    }
+
+    if (first && loadId == this._playlistLoadId) {
+      await setPlaylistItems([], options: options);
+    }
+    return count;
+  }
+
   /// Add a single track to the end of the playlist
   Future<dynamic> addItem(AudioTrack trackItem, {int index}) async {
     var validTrackItem = this._validateTrack(trackItem);
@@ -205,6 +362,47 @@ class RmxAudioPlayer {
     return _exec('clearAllItems');
   }
 
+  /// Named playlists (Android only)
+
+  /// Makes the named playlist the active one, creating it empty if needed. The playlist methods above
+  /// all work on the active playlist; the others keep their tracks, current item and playback position
+  /// on the native side, so switching back doesn't need setPlaylistItems again. If the player was playing,
+  /// the current item of the new playlist continues playing from its stored position.
+  /// The playlist in use before the first switch is named 'default'.
+  Future<dynamic> switchPlaylist(String name) {
+    return _exec('switchPlaylist', name);
+  }
+
+  /// Deletes a playlist that is not the active one. Returns true if it existed.
+  Future<dynamic> removePlaylist(String name) {
+    return _exec('removePlaylist', name);
+  }
+
+  /// Returns the names of all playlists, the active one first.
+  Future<dynamic> getPlaylistNames() {
+    return _exec('getPlaylistNames');
+  }
+
+  /// Offline downloads (Android only)
+
+  /// Downloads the given tracks to permanent storage, outside the media cache. Once a track
+  /// has completed (RMXSTATUS_DOWNLOAD_COMPLETED) it plays without any network access.
+  /// Resolves to the number of downloads started.
+  Future<dynamic> downloadItems(List<AudioTrack> items) {
+    return _exec('downloadItems', this._validateTracks(items));
+  }
+
+  /// Stops downloading the given track. What was received so far is kept,
+  /// so calling downloadItems again resumes the download.
+  Future<dynamic> cancelDownload(String trackId) {
+    return _exec('cancelDownload', trackId);
+  }
+
+  /// Cancels the download of the given track, if any, and deletes what has been stored for it.
+  Future<dynamic> removeDownload(String trackId) {
+    return _exec('removeDownload', trackId);
+  }
+
   /// Playback management
 
   /// Begin playback. If no tracks have been added, this has no effect.
@@ -311,6 +509,19 @@ class RmxAudioPlayer {
     return _exec('getQueuePosition');
   }
 
+  /// (Android only): Gets timing metrics, for tracking time-to-first-audio in production.
+  /// 'startup' has the counts of track starts ('started', 'abandoned' before playing, 'preloaded')
+  /// and under 'stages' a histogram per stage of the milliseconds from the play or skip command
+  /// to 'dataSource', 'firstBytes', 'prepared', 'canPlay' and 'playing'. A track loaded paused
+  /// (startPaused) stops at 'canPlay' and counts as abandoned. Each histogram has
+  /// 'count' and 'max' over all tracks, and 'min', 'mean', 'p50', 'p90' and 'p99' over the last 256.
+  /// 'commands' has per playlist command prepared in the background a 'queue' and an 'execution'
+  /// histogram of its milliseconds waiting in the queue and preparing and applying,
+  /// and 'actions' a histogram per method of how long its calls held the main thread.
+  Future<dynamic> getMetrics() {
+    return _exec('getMetrics');
+  }
+
   /// @internal
   /// Call this function to emit an onStatus event via the on('status') handler.
   /// Internal use only, to raise events received from the native interface.
@@ -329,6 +540,11 @@ class RmxAudioPlayer {
       this._currentItem = AudioTrack.fromJson(status.value['currentItem']);
     }
 
+    if (status.type == RmxAudioStatusMessage.RMXSTATUS_PLAYLIST_RESTORED &&
+        status.value['currentItem'] != null) {
+      this._currentItem = AudioTrack.fromJson(status.value['currentItem']);
+    }
+
     // The plugin's status changes only in response to specific events.
     if (itemStatusChangeTypes.indexOf(status.type) >= 0) {
       // Only change the plugin's ///current status/// if the event being raised is for the current active track.